@@ -0,0 +1,581 @@
+package SeamCarver;
+
+import edu.princeton.cs.algs4.Picture;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 2. SeamCarver.
+ * Seam carver for pictures too large for the heap. Finds and removes vertical seams.
+ *
+ * Pixels, energies and the backpointers of the seam search are kept in memory-mapped files in a working directory,
+ * in the layout of SeamCarver: packed RGB ints and energy doubles row by row with the stride of the original width,
+ * and a byte offset to the min path parent of each pixel. The OS pages them in and out as needed.
+ * The seam search streams energy rows through two rows of distances, and removal shifts each row in place,
+ * so the heap holds a few rows at most: peak heap doesn't grow with the height of the picture.
+ * Rows move between the files and the heap in bulk copies, not an element at a time.
+ * Files are mapped in chunks of 1 GB, so they can be larger than the 2 GB of a single mapping.
+ *
+ * A horizontal seam would walk the files a column at a time, a page per pixel, so there are no horizontal seams:
+ * carve a transposed picture to remove rows.
+ * Pictures come and go as raw pixel files, width × height packed 0xRRGGBB ints, big-endian, row by row, so they
+ * stream without decoding an image format.
+ */
+
+public class OutOfCoreSeamCarver implements Closeable {
+
+    private final int stride; // width of the original picture
+    private int width;
+    private int height;
+    private final Path pixelsPath;
+    private final Path energiesPath;
+    private final Path offsetsPath;
+    private MappedFile pixels; // packed RGB: pixel (x, y) is at index y * stride + x
+    private MappedFile energies; // energy of pixel (x, y) is at index y * stride + x
+    private MappedFile minPathOffsets; // min path parent of (x, y) is entry x + offset of row y - 1
+
+    // rows of the seam search
+    private double[] currentRowDistances;
+    private double[] prevRowDistances;
+    // a row of the files on the heap, for bulk copies
+    private final double[] energyRow;
+    private final int[] pixelRow;
+    private final byte[] offsetRow;
+
+    /**
+     * Create a seam carver of a raw pixel file. The file is copied into the directory and left as it is.
+     * Throw a java.lang.IllegalArgumentException if the size of the file isn't width × height pixels,
+     * and a java.io.UncheckedIOException if the files can't be read or written.
+     * @param rawPixels: raw pixel file
+     * @param width: width of the picture
+     * @param height: height of the picture
+     * @param directory: directory of the working files
+     */
+    public OutOfCoreSeamCarver(Path rawPixels, int width, int height, Path directory) {
+        this(rawPixels, width, height, directory, true);
+    }
+
+    /**
+     * Create a seam carver of a picture, for pictures that fit in the heap.
+     * Throw a java.io.UncheckedIOException if the working files can't be written.
+     * @param directory: directory of the working files
+     */
+    public OutOfCoreSeamCarver(Picture picture, Path directory) {
+        this(writeRawFile(picture, createFile(directory, "pixels")), picture.width(), picture.height(), directory,
+                false);
+    }
+
+    /**
+     * @param copy: copy rawPixels into the directory, or take it over as the working file of pixels
+     */
+    private OutOfCoreSeamCarver(Path rawPixels, int width, int height, Path directory, boolean copy) {
+        if (rawPixels == null || directory == null) {
+            throw new NullPointerException();
+        }
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.stride = width;
+        this.width = width;
+        this.height = height;
+        long size = (long) width * height;
+        try {
+            if (Files.size(rawPixels) != 4 * size) {
+                throw new IllegalArgumentException(rawPixels + " isn't " + width + " x " + height + " pixels");
+            }
+            if (copy) {
+                pixelsPath = createFile(directory, "pixels");
+                Files.copy(rawPixels, pixelsPath, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                pixelsPath = rawPixels;
+            }
+            energiesPath = createFile(directory, "energies");
+            offsetsPath = createFile(directory, "offsets");
+            pixels = new MappedFile(pixelsPath, 4 * size);
+            energies = new MappedFile(energiesPath, 8 * size);
+            minPathOffsets = new MappedFile(offsetsPath, size);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        currentRowDistances = new double[width];
+        prevRowDistances = new double[width];
+        energyRow = new double[width];
+        pixelRow = new int[width];
+        offsetRow = new byte[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                energies.putDouble((long) y * stride + x, energy(x, y));
+            }
+        }
+    }
+
+    private static Path createFile(Path directory, String name) {
+        try {
+            Path file = Files.createTempFile(directory, name, ".raw");
+            file.toFile().deleteOnExit();
+            return file;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Write a picture as a raw pixel file.
+     * Throw a java.io.UncheckedIOException if the file can't be written.
+     * @return the file
+     */
+    public static Path writeRawFile(Picture picture, Path file) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (int y = 0; y < picture.height(); y++) {
+                for (int x = 0; x < picture.width(); x++) {
+                    out.writeInt(picture.get(x, y).getRGB() & 0xFFFFFF);
+                }
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        return file;
+    }
+
+    /**
+     * Write current picture as a raw pixel file, row by row.
+     * Throw a java.io.UncheckedIOException if the file can't be written.
+     */
+    public void save(Path file) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    out.writeInt(pixels.getInt((long) y * stride + x));
+                }
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    // current picture, for pictures that fit in the heap
+    public Picture picture() {
+        Picture picture = new Picture(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                picture.set(x, y, new Color(pixels.getInt((long) y * stride + x)));
+            }
+        }
+        return picture;
+    }
+
+    // width of current picture
+    public int width() {
+        return width;
+    }
+
+    // height of current picture
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Dual-gradient energy of a pixel, same as SeamCarver.energy().
+     * @param x: column of a pixel
+     * @param y: row of a pixel
+     * @return energy of a pixel
+     */
+    public double energy(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            throw new IndexOutOfBoundsException();
+        // define the energy of a pixel at the border of the image to be 1000
+        if (x == 0 || y == 0 || x == width - 1 || y == height - 1) {
+            return 1000;
+        }
+        long i = (long) y * stride + x;
+        return Math.sqrt(squaredDifference(pixels.getInt(i + 1), pixels.getInt(i - 1))
+                + squaredDifference(pixels.getInt(i - stride), pixels.getInt(i + stride)));
+    }
+
+    /**
+     * Helper method.
+     * @return sum of the squared differences of the red, green and blue components of two pixels
+     */
+    private static int squaredDifference(int rgb1, int rgb2) {
+        int red = ((rgb1 >> 16) & 0xFF) - ((rgb2 >> 16) & 0xFF);
+        int green = ((rgb1 >> 8) & 0xFF) - ((rgb2 >> 8) & 0xFF);
+        int blue = (rgb1 & 0xFF) - (rgb2 & 0xFF);
+        return red * red + green * green + blue * blue;
+    }
+
+    /**
+     * Find a vertical seam of minimum total energy, the same seam as SeamCarver.findVerticalSeam().
+     * Runs in time proportional to width × height, reading the energies and writing the backpointers
+     * once, row by row.
+     * @return an array of length H such that entry
+     * y is the column number of the pixel to be removed from row y of the image.
+     */
+    public int[] findVerticalSeam() {
+        int[] seam = new int[height];
+        findSeam(seam);
+        return seam;
+    }
+
+    private void findSeam(int[] seam) {
+        for (int y = 0; y < height; y++) {
+            calcRow(y);
+            double[] swap = prevRowDistances;
+            prevRowDistances = currentRowDistances;
+            currentRowDistances = swap;
+        }
+        int x = 0;
+        for (int i = 1; i < width; i++) {
+            if (prevRowDistances[i] < prevRowDistances[x]) {
+                x = i;
+            }
+        }
+        // backtrack shortest path and get seam entries
+        for (int y = height - 1; y >= 0; y--) {
+            seam[y] = x;
+            x += minPathOffsets.getByte((long) y * stride + x); // go one row up
+        }
+    }
+
+    /**
+     * Helper method.
+     * Calculates minimal distances to the pixels of row y into currentRowDistances from prevRowDistances,
+     * with the ties of SeamCarver.
+     */
+    private void calcRow(int y) {
+        long row = (long) y * stride;
+        energies.getDoubles(row, energyRow, width);
+        for (int x = 0; x < width; x++) {
+            double energy = energyRow[x];
+            int offset;
+            double min;
+            if (y == 0) { // top row: no ancestors
+                offset = 0;
+                min = 0;
+                energy = 1000;
+            } else if (x == 0) { // left-most column: ancestors (x, y-1) and (x+1, y-1)
+                double topRight = x + 1 < width ? prevRowDistances[x + 1] : Double.POSITIVE_INFINITY;
+                offset = prevRowDistances[x] < topRight ? 0 : 1;
+                min = prevRowDistances[x + offset];
+            } else if (x == width - 1) { // right-most column: ancestors (x-1, y-1) and (x, y-1)
+                offset = prevRowDistances[x] < prevRowDistances[x - 1] ? 0 : -1;
+                min = prevRowDistances[x + offset];
+            } else { // ancestors (x-1, y-1), (x, y-1), (x+1, y-1)
+                double topLeft = prevRowDistances[x - 1];
+                double top = prevRowDistances[x];
+                double topRight = prevRowDistances[x + 1];
+                min = Math.min(Math.min(topLeft, top), topRight);
+                offset = min == topLeft ? -1 : min == top ? 0 : 1;
+            }
+            offsetRow[x] = (byte) offset;
+            currentRowDistances[x] = min + energy;
+        }
+        minPathOffsets.putBytes(row, offsetRow, width);
+    }
+
+    /**
+     * remove vertical seam from current picture
+     * @param seam sequence of entries for deletion
+     */
+    public void removeVerticalSeam(int[] seam) {
+        if (seam == null) {
+            throw new NullPointerException();
+        }
+        if (!isValidSeam(seam) || width <= 1) {
+            throw new IllegalArgumentException();
+        }
+        removeSeam(seam);
+    }
+
+    /**
+     * remove k vertical seams of minimum total energy from current picture, one after another.
+     * Throw a java.lang.IllegalArgumentException unless 0 <= k < width.
+     * @param k number of seams to remove
+     */
+    public void removeVerticalSeams(int k) {
+        if (k < 0 || k >= width) {
+            throw new IllegalArgumentException();
+        }
+        int[] seam = new int[height];
+        for (int i = 0; i < k; i++) {
+            findSeam(seam);
+            removeSeam(seam);
+        }
+    }
+
+    /**
+     * Helper method.
+     * Shift the rest of each row left over the removed entry, in place, then recalculate energy
+     * of the 2 pixels next to the removed one in each row, the only ones with a new neighbour.
+     */
+    private void removeSeam(int[] seam) {
+        for (int y = 0; y < height; y++) {
+            long from = (long) y * stride + seam[y] + 1;
+            int length = width - 1 - seam[y];
+            pixels.getInts(from, pixelRow, length);
+            pixels.putInts(from - 1, pixelRow, length);
+            energies.getDoubles(from, energyRow, length);
+            energies.putDoubles(from - 1, energyRow, length);
+        }
+        width -= 1;
+        for (int y = 0; y < height; y++) {
+            for (int x = Math.max(0, seam[y] - 1); x <= Math.min(width - 1, seam[y]); x++) {
+                energies.putDouble((long) y * stride + x, energy(x, y));
+            }
+        }
+    }
+
+    /**
+     * Helper method
+     * @param seam sequence of entries for deletion
+     * @return true if seam is a vertical seam of current picture. false otherwise.
+     */
+    private boolean isValidSeam(int[] seam) {
+        if (seam.length != height) {
+            return false;
+        }
+        for (int i = 0; i < seam.length; i++) {
+            if (seam[i] < 0 || seam[i] > width - 1) {
+                return false;
+            }
+            if (i != seam.length - 1 && Math.abs(seam[i] - seam[i + 1]) > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Unmap and delete the working files. The seam carver can't be used any more.
+     * The mappings are dropped first, then unmapped where the JDK allows it (see MappedFile.unmap()):
+     * otherwise they last until the buffers are garbage collected. Linux deletes a mapped file at once and frees
+     * its pages when it is unmapped; Windows can't delete a mapped file, so such a file is deleted on exit instead.
+     */
+    @Override
+    public void close() {
+        MappedFile[] files = {pixels, energies, minPathOffsets};
+        pixels = null;
+        energies = null;
+        minPathOffsets = null;
+        for (MappedFile file : files) {
+            if (file != null) {
+                file.unmap();
+            }
+        }
+        for (Path path : new Path[] {pixelsPath, energiesPath, offsetsPath}) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ioe) {
+                path.toFile().deleteOnExit(); // still mapped
+            }
+        }
+    }
+
+    /**
+     * A file mapped in chunks of 1 GB, read and written as an array of ints, doubles or bytes.
+     * Chunks are a multiple of 8 bytes long, so no element spans two of them.
+     */
+    private static final class MappedFile {
+        private static final int CHUNK_BITS = 30;
+        private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+        private MappedByteBuffer[] chunks;
+        // views of the chunks for bulk copies, positioned by each copy
+        private IntBuffer[] intViews;
+        private DoubleBuffer[] doubleViews;
+
+        /**
+         * Maps a file, growing it to size bytes.
+         */
+        MappedFile(Path path, long size) throws IOException {
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (int c = 0; c < chunks.length; c++) {
+                    long start = (long) c << CHUNK_BITS;
+                    chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                            Math.min(CHUNK_MASK + 1, size - start));
+                }
+            }
+            intViews = new IntBuffer[chunks.length];
+            doubleViews = new DoubleBuffer[chunks.length];
+            for (int c = 0; c < chunks.length; c++) {
+                intViews[c] = chunks[c].asIntBuffer();
+                doubleViews[c] = chunks[c].asDoubleBuffer();
+            }
+        }
+
+        /*
+         * Unmaps the chunks right away instead of whenever they are garbage collected, where the JDK allows it:
+         * Unsafe.invokeCleaner() since Java 9, the cleaner of a direct buffer in Java 8.
+         * The file can't be used after.
+         */
+        void unmap() {
+            MappedByteBuffer[] mapped = chunks;
+            chunks = null;
+            intViews = null;
+            doubleViews = null;
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = null;
+                Object unsafe = null;
+                try {
+                    invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                    Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                    theUnsafe.setAccessible(true);
+                    unsafe = theUnsafe.get(null);
+                } catch (NoSuchMethodException java8) {
+                    // Java 8: each buffer has a cleaner
+                }
+                for (MappedByteBuffer chunk : mapped) {
+                    if (invokeCleaner != null) {
+                        invokeCleaner.invoke(unsafe, chunk);
+                    } else {
+                        Method cleanerMethod = chunk.getClass().getMethod("cleaner");
+                        cleanerMethod.setAccessible(true);
+                        Object cleaner = cleanerMethod.invoke(chunk);
+                        if (cleaner != null) {
+                            cleaner.getClass().getMethod("clean").invoke(cleaner);
+                        }
+                    }
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // not allowed by this JDK: unmapped when the chunks are garbage collected
+            }
+        }
+
+        int getInt(long index) {
+            long position = index << 2;
+            return chunks[(int) (position >>> CHUNK_BITS)].getInt((int) (position & CHUNK_MASK));
+        }
+
+        void putInt(long index, int value) {
+            long position = index << 2;
+            chunks[(int) (position >>> CHUNK_BITS)].putInt((int) (position & CHUNK_MASK), value);
+        }
+
+        double getDouble(long index) {
+            long position = index << 3;
+            return chunks[(int) (position >>> CHUNK_BITS)].getDouble((int) (position & CHUNK_MASK));
+        }
+
+        void putDouble(long index, double value) {
+            long position = index << 3;
+            chunks[(int) (position >>> CHUNK_BITS)].putDouble((int) (position & CHUNK_MASK), value);
+        }
+
+        byte getByte(long index) {
+            return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+        }
+
+        void putByte(long index, byte value) {
+            chunks[(int) (index >>> CHUNK_BITS)].put((int) (index & CHUNK_MASK), value);
+        }
+
+        // bulk copies of length elements from index on, split where they cross a chunk
+
+        void getInts(long index, int[] dst, int length) {
+            for (int done = 0; done < length; ) {
+                long position = (index + done) << 2;
+                IntBuffer view = intViews[(int) (position >>> CHUNK_BITS)];
+                view.position((int) ((position & CHUNK_MASK) >>> 2));
+                int n = Math.min(length - done, view.remaining());
+                view.get(dst, done, n);
+                done += n;
+            }
+        }
+
+        void putInts(long index, int[] src, int length) {
+            for (int done = 0; done < length; ) {
+                long position = (index + done) << 2;
+                IntBuffer view = intViews[(int) (position >>> CHUNK_BITS)];
+                view.position((int) ((position & CHUNK_MASK) >>> 2));
+                int n = Math.min(length - done, view.remaining());
+                view.put(src, done, n);
+                done += n;
+            }
+        }
+
+        void getDoubles(long index, double[] dst, int length) {
+            for (int done = 0; done < length; ) {
+                long position = (index + done) << 3;
+                DoubleBuffer view = doubleViews[(int) (position >>> CHUNK_BITS)];
+                view.position((int) ((position & CHUNK_MASK) >>> 3));
+                int n = Math.min(length - done, view.remaining());
+                view.get(dst, done, n);
+                done += n;
+            }
+        }
+
+        void putDoubles(long index, double[] src, int length) {
+            for (int done = 0; done < length; ) {
+                long position = (index + done) << 3;
+                DoubleBuffer view = doubleViews[(int) (position >>> CHUNK_BITS)];
+                view.position((int) ((position & CHUNK_MASK) >>> 3));
+                int n = Math.min(length - done, view.remaining());
+                view.put(src, done, n);
+                done += n;
+            }
+        }
+
+        void putBytes(long index, byte[] src, int length) {
+            for (int done = 0; done < length; ) {
+                long position = index + done;
+                MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_BITS)];
+                chunk.position((int) (position & CHUNK_MASK));
+                int n = Math.min(length - done, chunk.remaining());
+                chunk.put(src, done, n);
+                done += n;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // args: picture.png columnsToRemove directory,
+        // or width height columnsToRemove directory for a random raw picture written without a Picture
+        OutOfCoreSeamCarver seamCarver;
+        int columns;
+        if (args.length > 3) {
+            int width = Integer.parseInt(args[0]);
+            int height = Integer.parseInt(args[1]);
+            columns = Integer.parseInt(args[2]);
+            Path directory = Paths.get(args[3]);
+            Path raw = createFile(directory, "random");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(raw)))) {
+                for (long i = (long) width * height; i > 0; i--) {
+                    out.writeInt(StdRandom.uniform(1 << 24));
+                }
+            }
+            seamCarver = new OutOfCoreSeamCarver(raw, width, height, directory);
+            Files.delete(raw);
+        } else {
+            columns = Integer.parseInt(args[1]);
+            seamCarver = new OutOfCoreSeamCarver(new Picture(args[0]), Paths.get(args[2]));
+        }
+        StdOut.printf("image is %d columns by %d rows\n", seamCarver.width(), seamCarver.height());
+        Stopwatch sw = new Stopwatch();
+        seamCarver.removeVerticalSeams(columns);
+        StdOut.printf("removed %d columns in %.3f seconds, heap used %d MB\n", columns, sw.elapsedTime(),
+                (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20);
+        seamCarver.close();
+    }
+}
@@ -2,7 +2,12 @@ package SeamCarver;
 
 import edu.princeton.cs.algs4.Picture;
 
-import java.awt.*;
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -19,42 +24,104 @@ import java.awt.*;
  *
  * SeamCarver is a data type that resizes a W-by-H image using the seam-carving technique.
  *
+ * The working image is a packed RGB int per pixel in a flat row-major buffer, so energy is computed by extracting
+ * color channels with shifts and masks, and seam removal copies runs of ints instead of Color objects.
+ * Rows keep the stride of the original width as the picture narrows: removing a vertical seam shifts only
+ * the pixels right of the seam in each row, and the buffer is compacted once, when picture() builds a Picture.
+ * Energies are kept in a buffer of the same layout. Removing a seam shifts both buffers in place and recomputes
+ * the energy of the 2 pixels next to the removed one in each line only: no other pixel has a new neighbour.
+ * Vertical and horizontal seams are both found and removed on this layout, so the picture is never transposed.
+ * The working buffers of the seam search are allocated once and reused by every search.
+ *
+ * Each line of the seam search depends only on the previous line, so on wide lines the search runs in parallel:
+ * the entries of a line are split into chunks, one per thread, and the threads meet at a spin barrier after every
+ * line. It switches on for lines of at least setParallelThreshold() entries.
+ * The energies of a new picture are computed in bands of rows in parallel too.
+ * Both run on a shared pool with one thread per processor. A search or an energy computation takes as many of
+ * its threads as are free, without waiting, and the calling thread works too. So the pool never holds more tasks
+ * than threads, every chunk of a search runs as soon as it's submitted, and concurrent carvers split
+ * the processors between them instead of running one after another.
  */
 
 public class SeamCarver {
 
-    private Picture picture;
-    private double[][] energyMatrix;
-    private boolean isTransposed; // false by default
-    private boolean calledFromHorizontal; // false by default
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 2048;
+    private static final int MIN_CHUNK = 512; // fewest entries of a line per thread of a parallel search
+    private static final int MIN_BAND = 1 << 16; // fewest pixels per thread of a parallel energy computation
+    private static final int STRIP = 16; // lines per sweep of a serial horizontal search, see calcStrips()
+    // threads of parallel searches and energy computations
+    private static final ForkJoinPool PARALLEL_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    // free threads of PARALLEL_POOL. Tasks are submitted only with a permit each, so no task waits for a thread:
+    // the chunks of a search wait for each other at a barrier, so all must run at once
+    private static final Semaphore FREE_THREADS = new Semaphore(PARALLEL_POOL.getParallelism());
+
+    private int[] pixels; // packed RGB, row-major: pixel (x, y) is pixels[y * stride + x]
+    private final int stride; // width of the original picture
+    private int width;
+    private int height;
+    private Picture picture; // built from pixels by picture(), null until then or after a change
+    private double[] energies; // row-major like pixels: energy of pixel (x, y) is energies[y * stride + x]
+
+    // working buffers of findSeam(), allocated by the first search
+    // min path parent of entry x of line y is entry x + minPathOffsets[y * entries + x] of line y - 1:
+    // -1, 0 or 1, so a byte each
+    private byte[] minPathOffsets;
+    private double[][] rowDistances; // minimal distances to each entry of line y are in rowDistances[y & 1]
+    private double[] energyStrip; // energies of STRIP columns, column-major, for calcStrips()
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 
     // create a seam carver object based on the given picture
     public SeamCarver(Picture picture) {
         if (picture == null) {
             throw new NullPointerException();
         }
-        this.picture = new Picture(picture);
-        this.energyMatrix = new double[picture.width()][picture.height()];
+        this.width = picture.width();
+        this.height = picture.height();
+        this.stride = width;
+        this.pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * stride + x] = picture.get(x, y).getRGB() & 0xFFFFFF;
+            }
+        }
+        this.energies = new double[width * height];
         calculateEnergyMatrix();
     }
 
     // current picture
     public Picture picture() {
-        if (isTransposed) { // make sure the orientation is correct
-            transposePicture();
-            isTransposed = false;
+        if (picture == null) {
+            picture = new Picture(width, height);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    picture.set(x, y, new Color(pixels[y * stride + x]));
+                }
+            }
         }
         return picture;
     }
 
     // width of current picture
     public int width() {
-        return picture.width();
+        return width;
     }
 
     // height of current picture
     public int height() {
-        return picture.height();
+        return height;
+    }
+
+    /**
+     * Seam searches across lines of at least this many entries, the width for a vertical seam and the height
+     * for a horizontal one, run in parallel on the free processors. Integer.MAX_VALUE keeps all searches serial.
+     * Throw a java.lang.IllegalArgumentException if the threshold is less than 1.
+     * @param entries: threshold, DEFAULT_PARALLEL_THRESHOLD by default
+     */
+    public void setParallelThreshold(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.parallelThreshold = entries;
     }
 
     /**
@@ -66,7 +133,7 @@ public class SeamCarver {
      * @return energy of a pixel
      */
     public double energy(int x, int y) {
-        if (x < 0 || y < 0 || x >= picture.width() || y >= picture.height())
+        if (x < 0 || y < 0 || x >= width || y >= height)
             throw new IndexOutOfBoundsException();
         // define the energy of a pixel at the border of the image to be 1000
         if (x == 0 || y == 0 || x == width() - 1 || y == height() - 1) {
@@ -82,11 +149,8 @@ public class SeamCarver {
      * @return value of the square of the x-gradient
      */
     private double xGradient(int x, int y) {
-        Color rightPixel = picture.get(x + 1, y);
-        Color leftPixel = picture.get(x - 1, y);
-        return Math.pow(rightPixel.getRed() - leftPixel.getRed(), 2) +
-                Math.pow(rightPixel.getGreen() - leftPixel.getGreen(), 2) +
-                Math.pow(rightPixel.getBlue() - leftPixel.getBlue(), 2);
+        int i = y * stride + x;
+        return squaredDifference(pixels[i + 1], pixels[i - 1]);
     }
 
     /**
@@ -96,21 +160,78 @@ public class SeamCarver {
      * @return value of the square of the y-gradient
      */
     private double yGradient(int x, int y) {
-        Color topPixel = picture.get(x, y - 1);
-        Color bottomPixel = picture.get(x, y + 1);
-        return Math.pow(topPixel.getRed() - bottomPixel.getRed(), 2) +
-                Math.pow(topPixel.getGreen() - bottomPixel.getGreen(), 2) +
-                Math.pow(topPixel.getBlue() - bottomPixel.getBlue(), 2);
+        int i = y * stride + x;
+        return squaredDifference(pixels[i - stride], pixels[i + stride]);
+    }
+
+    /**
+     * Helper method.
+     * @param rgb1: packed RGB of a pixel
+     * @param rgb2: packed RGB of another pixel
+     * @return sum of the squared differences of the red, green and blue components of two pixels
+     */
+    private static int squaredDifference(int rgb1, int rgb2) {
+        int red = ((rgb1 >> 16) & 0xFF) - ((rgb2 >> 16) & 0xFF);
+        int green = ((rgb1 >> 8) & 0xFF) - ((rgb2 >> 8) & 0xFF);
+        int blue = (rgb1 & 0xFF) - (rgb2 & 0xFF);
+        return red * red + green * green + blue * blue;
     }
 
     /**
-     * Calculate energy of each pixel of a picture and save it in a 2d array
+     * Calculate energy of each pixel of a picture and save it in energies.
+     * Large pictures are split into bands of rows, computed in parallel.
      */
     private void calculateEnergyMatrix() {
-        for (int row = 0; row < picture.height(); row++) {
-            for (int col = 0; col < picture.width(); col++) {
-                energyMatrix[col][row] = energy(col, row);
+        int helpers = acquireThreads(Math.min(PARALLEL_POOL.getParallelism(), width * height / MIN_BAND) - 1);
+        int bands = helpers + 1; // the calling thread computes the first band
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[helpers];
+        try {
+            for (int b = 1; b < bands; b++) {
+                int from = (int) ((long) b * height / bands);
+                int to = (int) ((long) (b + 1) * height / bands);
+                tasks[b - 1] = PARALLEL_POOL.submit(() -> calcEnergyRows(from, to));
             }
+            calcEnergyRows(0, height / bands);
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            FREE_THREADS.release(helpers);
+        }
+    }
+
+    /**
+     * Helper method.
+     * Takes up to wanted free threads of PARALLEL_POOL without waiting. Release them to FREE_THREADS when done.
+     * @return number of threads taken
+     */
+    private static int acquireThreads(int wanted) {
+        int acquired = 0;
+        while (acquired < wanted && FREE_THREADS.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+
+    /**
+     * Helper method.
+     * Calculate energy of rows from (inclusive) to to (exclusive), same as energy(), but straight off
+     * the packed RGB rows: borders are filled in, and the inner loop over a row has no bounds checks
+     * or branches, only integer arithmetic and a square root per pixel.
+     */
+    private void calcEnergyRows(int from, int to) {
+        for (int y = from; y < to; y++) {
+            int row = y * stride;
+            if (y == 0 || y == height - 1 || width <= 2) {
+                Arrays.fill(energies, row, row + width, 1000);
+                continue;
+            }
+            energies[row] = 1000;
+            for (int i = row + 1; i < row + width - 1; i++) {
+                energies[i] = Math.sqrt(squaredDifference(pixels[i + 1], pixels[i - 1])
+                        + squaredDifference(pixels[i - stride], pixels[i + stride]));
+            }
+            energies[row + width - 1] = 1000;
         }
     }
 
@@ -118,11 +239,11 @@ public class SeamCarver {
      * Print energy of each pixel as last calculated by SeamCarver calculateEnergyMatrix().
      */
     private void printEnergyMatrix() {
-        System.out.printf("image is %d pixels wide by %d pixels high.\n", picture.width(), picture.height());
+        System.out.printf("image is %d pixels wide by %d pixels high.\n", width, height);
         System.out.printf("Printing energy calculated for each pixel.\n");
-        for (int row = 0; row < picture.height(); row++) {
-            for (int col = 0; col < picture.width(); col++) {
-                System.out.printf("%9.0f ", energyMatrix[col][row]);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                System.out.printf("%9.0f ", energies[row * stride + col]);
             }
             System.out.println();
         }
@@ -131,97 +252,230 @@ public class SeamCarver {
     /**
      * Find a vertical seam of minimum total energy.
      * Sequence of indices for vertical seam.
-     * Strategy: go from top to bottom calculating minimal distances to each entry row by row keeping track
-     * of the closest path in minPathAncestorsMatrix.
-     * Detect a bottom row entry with minimal distance and backtrack using minPathAncestorsMatrix to receive a vertical
-     * seam array.
+     * Strategy: see findSeam(). Lines are rows of the image, entries are columns.
      * Runs in time proportional to width × height in the worst case.
      * @return an array of length H such that entry
      * y is the column number of the pixel to be removed from row y of the image.
      */
     public int[] findVerticalSeam() {
-        // reverse to the initial state when transposed and called not from findHorizontalSeam().
-        if (isTransposed && !calledFromHorizontal) {
-            transposePicture();
-            isTransposed = false;
-        }
-        int[][] minPathAncestorsMatrix = new int[picture.width()][picture.height()];
-        int[] seamEntries = new int[height()]; // store entries to be removed from the the image
-        double[] currentRowDistances = new double[width()]; // temporarily store minimal distances to each entry of the row processed
-        double[] prevRowDistances = new double[width()]; // keep distances to each entry of the last processed row saved
-
-        for (int y = 0; y < height(); y++) {
-            for (int x = 0; x < width(); x++) {
-                calcMinDistance(x, y, currentRowDistances, prevRowDistances, minPathAncestorsMatrix);
+        int[] seam = new int[height];
+        findSeam(true, seam);
+        return seam;
+    }
+
+    /**
+     * Same as findVerticalSeam(), but lines are columns of the image and entries are rows.
+     * Runs on the row-major buffers as they are, so the picture is never transposed: a serial search copies
+     * the energies of a few columns at a time into a column-major strip (see calcStrips()), a parallel one
+     * reads the energies of each line a row apart.
+     * @return an array of length W such that entry
+     * x is the row number of the pixel to be removed from column x of the image.
+     */
+    public int[] findHorizontalSeam() {
+        int[] seam = new int[width];
+        findSeam(false, seam);
+        return seam;
+    }
+
+    /**
+     * Find a seam of minimum total energy that crosses every line of the image once:
+     * every row for a vertical seam, every column for a horizontal one.
+     * Strategy: go from the first line to the last calculating minimal distances to each entry line by line
+     * keeping track of the closest path in minPathOffsets.
+     * Detect a last line entry with minimal distance and backtrack using minPathOffsets to receive a seam array.
+     * @param vertical: true for a vertical seam
+     * @param seamEntries: receives the seam, entry i is the entry of the pixel to be removed from line i
+     * @return total energy of the seam
+     */
+    private double findSeam(boolean vertical, int[] seamEntries) {
+        int lines = vertical ? height : width;
+        int entries = vertical ? width : height;
+        int lineStride = vertical ? stride : 1; // index distance in energies to the same entry of the next line
+        int entryStride = vertical ? 1 : stride; // index distance in energies to the next entry of the same line
+        if (minPathOffsets == null) {
+            minPathOffsets = new byte[energies.length];
+            rowDistances = new double[2][Math.max(width, height)];
+        }
+
+        int helpers = entries < parallelThreshold ? 0
+                : acquireThreads(Math.min(PARALLEL_POOL.getParallelism(), entries / MIN_CHUNK) - 1);
+        if (helpers > 0) {
+            try {
+                calcChunksInParallel(lines, entries, lineStride, entryStride, helpers + 1);
+            } finally {
+                FREE_THREADS.release(helpers);
+            }
+        } else if (!vertical) {
+            calcStrips(lines, entries);
+        } else {
+            for (int y = 0; y < lines; y++) {
+                calcLine(y, 0, entries, entries, lineStride, entryStride);
             }
-            System.arraycopy(currentRowDistances, 0, prevRowDistances, 0, width());
         }
 
-        int minDistanceEntryCol = getMinEntry(prevRowDistances);
+        double[] lastRowDistances = rowDistances[(lines - 1) & 1];
+        int minDistanceEntryCol = getMinEntry(lastRowDistances, entries);
+        double seamEnergy = lastRowDistances[minDistanceEntryCol];
         // backtrack shortest path and get seam entries
-        seamEntries[seamEntries.length - 1] = minDistanceEntryCol; // insert last entry into seam.
-        for (int i = seamEntries.length - 2; i >= 0; i--) {
-            seamEntries[i] = minPathAncestorsMatrix[minDistanceEntryCol][i + 1]; // insert ith entry into seam.
-            minDistanceEntryCol = minPathAncestorsMatrix[minDistanceEntryCol][i + 1]; // go one row up
+        seamEntries[lines - 1] = minDistanceEntryCol; // insert last entry into seam.
+        for (int i = lines - 2; i >= 0; i--) {
+            minDistanceEntryCol += minPathOffsets[(i + 1) * entries + minDistanceEntryCol]; // go one line up
+            seamEntries[i] = minDistanceEntryCol; // insert ith entry into seam.
         }
-        return seamEntries;
+        return seamEnergy;
     }
 
     /**
-     * Same as findVerticalSeam()
-     * Transpose only if not transposed already.
-     * Don't explicitly transpose the Picture until you need to do so.
-     * For example, if you perform a sequence of 50 consecutive horizontal seam removals,
-     * you should need only two transposes (not 100).
+     * Helper method.
+     * Calculates minimal distances to entries from (inclusive) to to (exclusive) of line y.
+     * @param entries: number of entries of a line
+     * @param lineStride: index distance in energies to the same entry of the next line
+     * @param entryStride: index distance in energies to the next entry of the same line
      */
-    public int[] findHorizontalSeam() {
-        if(!isTransposed) {
-            transposePicture();
-            isTransposed = true;
+    private void calcLine(int y, int from, int to, int entries, int lineStride, int entryStride) {
+        double[] currentRowDistances = rowDistances[y & 1];
+        double[] prevRowDistances = rowDistances[(y + 1) & 1];
+        for (int x = from; x < to; x++) {
+            calcMinDistance(x, y, entries, energies[y * lineStride + x * entryStride], currentRowDistances,
+                    prevRowDistances);
+        }
+    }
+
+    /**
+     * Helper method.
+     * Calculates minimal distances to all lines of a horizontal seam, serially, in strips of STRIP lines.
+     * Lines are columns of the row-major energies, so a line at a time would read an energy a row apart, a cache
+     * line per entry. Instead the energies of a strip are first copied row by row, STRIP neighbouring energies
+     * at a time, into energyStrip, where each line is contiguous, and then the lines of the strip are calculated
+     * from energyStrip, reading entries in order.
+     */
+    private void calcStrips(int lines, int entries) {
+        if (energyStrip == null) {
+            energyStrip = new double[STRIP * height];
+        }
+        for (int x0 = 0; x0 < lines; x0 += STRIP) {
+            int strip = Math.min(STRIP, lines - x0);
+            for (int y = 0; y < entries; y++) {
+                int row = y * stride + x0;
+                for (int k = 0; k < strip; k++) {
+                    energyStrip[k * entries + y] = energies[row + k];
+                }
+            }
+            for (int k = 0; k < strip; k++) {
+                double[] currentRowDistances = rowDistances[(x0 + k) & 1];
+                double[] prevRowDistances = rowDistances[(x0 + k + 1) & 1];
+                for (int y = 0; y < entries; y++) {
+                    calcMinDistance(y, x0 + k, entries, energyStrip[k * entries + y], currentRowDistances,
+                            prevRowDistances);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method.
+     * Calculates minimal distances to all lines, with the entries of each line split into chunks.
+     * The calling thread takes the first chunk, the threads of PARALLEL_POOL take the others. A chunk of a line
+     * reads the distances its neighbour chunks found in the previous line, so all chunks finish a line
+     * before any of them starts the next one.
+     * @param chunks: number of chunks, one more than the threads taken from FREE_THREADS
+     */
+    private void calcChunksInParallel(int lines, int entries, int lineStride, int entryStride, int chunks) {
+        SpinBarrier barrier = new SpinBarrier(chunks);
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunks - 1];
+        for (int c = 1; c < chunks; c++) {
+            int from = (int) ((long) c * entries / chunks);
+            int to = (int) ((long) (c + 1) * entries / chunks);
+            tasks[c - 1] = PARALLEL_POOL.submit(() -> calcChunk(from, to, lines, entries, lineStride, entryStride,
+                    barrier));
+        }
+        calcChunk(0, entries / chunks, lines, entries, lineStride, entryStride, barrier);
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    private void calcChunk(int from, int to, int lines, int entries, int lineStride, int entryStride,
+                           SpinBarrier barrier) {
+        for (int y = 0; y < lines; y++) {
+            calcLine(y, from, to, entries, lineStride, entryStride);
+            barrier.await();
+        }
+    }
+
+    /**
+     * Barrier of a fixed number of threads that wait for each other by spinning, then yielding.
+     * A line of a parallel search takes microseconds, less than parking and waking a thread would.
+     */
+    private static final class SpinBarrier {
+        private static final int SPINS = 1 << 10; // spins before a waiting thread starts to yield
+
+        private final int parties;
+        private final AtomicInteger arrived = new AtomicInteger();
+        private volatile int phase;
+
+        SpinBarrier(int parties) {
+            this.parties = parties;
+        }
+
+        void await() {
+            int currentPhase = phase;
+            if (arrived.incrementAndGet() == parties) { // last to arrive: reset and release the others
+                arrived.set(0);
+                phase = currentPhase + 1;
+                return;
+            }
+            for (int spins = 0; phase == currentPhase; spins++) {
+                if (spins >= SPINS) {
+                    Thread.yield();
+                }
+            }
         }
-        calledFromHorizontal = true;
-        int[] seam = findVerticalSeam();
-        calledFromHorizontal = false; // a trick that allows not to transpose until it's required.
-        return seam;
     }
 
     /**
      * Helper method.
-     * Calculates a minimal distance to pixels of each row one at a time.
-     * @param x: column
-     * @param y: row
-     * @param currentRowDistances: min distances to the entries of the current row
-     * @param prevRowDistances: min distances to the entries of the above row
+     * Calculates a minimal distance to one pixel of a line.
+     * Positions are named as in a vertical seam: x is the entry (column), y is the line (row).
+     * @param x: entry
+     * @param y: line
+     * @param entries: number of entries of a line
+     * @param energy: energy of the entry
+     * @param currentRowDistances: min distances to the entries of the current line
+     * @param prevRowDistances: min distances to the entries of the previous line
      */
-    private void calcMinDistance(int x, int y, double[] currentRowDistances, double[] prevRowDistances, int[][] minPathAncestorsMatrix) {
+    private void calcMinDistance(int x, int y, int entries, double energy, double[] currentRowDistances,
+                                 double[] prevRowDistances) {
+        int ancestor = y * entries + x; // index of the offset to the min path parent of an entry (x, y)
         // case 1: top row. Distance to each entry is 1000 by default. Entries don't have ancestors.
         if (y == 0) {
-            minPathAncestorsMatrix[x][y] = -1; // set min path parent of an entry (x, y)
+            minPathOffsets[ancestor] = 0; // no min path parent of an entry (x, y)
             currentRowDistances[x] = 1000; // set distance to an entry (x, y)
         }
-        // case 2: Left-most column. Entry has 2 ancestors at positions (x, y-1) and (x+1, y-1)
+        // case 2: Left-most column. Entry has 2 ancestors at positions (x, y-1) and (x+1, y-1),
+        // or only (x, y-1) in a picture 1 pixel wide
         else if (x == 0) {
             double top = prevRowDistances[x];
-            double topRight = prevRowDistances[x + 1];
+            double topRight = x + 1 < entries ? prevRowDistances[x + 1] : Double.POSITIVE_INFINITY;
             if (top < topRight) {
-                minPathAncestorsMatrix[x][y] = x;  // set min path parent of an entry (x, y)
-                currentRowDistances[x] = top + energyMatrix[x][y]; // set distance to an entry (x, y)
+                minPathOffsets[ancestor] = 0;  // set min path parent of an entry (x, y)
+                currentRowDistances[x] = top + energy; // set distance to an entry (x, y)
                 // (distance to a min math parent + distance to an entry from parent
             } else {
-                minPathAncestorsMatrix[x][y] = x + 1;
-                currentRowDistances[x] = topRight + energyMatrix[x][y];
+                minPathOffsets[ancestor] = 1;
+                currentRowDistances[x] = topRight + energy;
             }
         }
         // case 3: Right-most column. Entry has 2 ancestors at positions (x-1, y-1) and (x, y-1)
-        else if (x == width() - 1) {
+        else if (x == entries - 1) {
             double top = prevRowDistances[x];
             double topLeft = prevRowDistances[x - 1];
             if (top < topLeft) {
-                minPathAncestorsMatrix[x][y] = x;
-                currentRowDistances[x] = top + energyMatrix[x][y];
+                minPathOffsets[ancestor] = 0;
+                currentRowDistances[x] = top + energy;
             } else {
-                minPathAncestorsMatrix[x][y] = x - 1;
-                currentRowDistances[x] = topLeft + energyMatrix[x][y];
+                minPathOffsets[ancestor] = -1;
+                currentRowDistances[x] = topLeft + energy;
             }
         }
         // case 4: Entry has 3 ancestors at positions (x-1, y-1), (x, y-1), (x+1, y-1)
@@ -231,24 +485,25 @@ public class SeamCarver {
             double topRight = prevRowDistances[x + 1];
             double min = Math.min(Math.min(topLeft, top), topRight);
             if (min == topLeft) {
-                minPathAncestorsMatrix[x][y] = x - 1;
+                minPathOffsets[ancestor] = -1;
             } else if (min == top) {
-                minPathAncestorsMatrix[x][y] = x;
+                minPathOffsets[ancestor] = 0;
             } else {
-                minPathAncestorsMatrix[x][y] = x + 1;
+                minPathOffsets[ancestor] = 1;
             }
-            currentRowDistances[x] = min + energyMatrix[x][y];
+            currentRowDistances[x] = min + energy;
         }
     }
 
     /**
      * Helper method.
      * @param distances: array of distances
+     * @param entries: number of entries of the row
      * @return a column of an entry with a minimal distance in a passed row of distances
      */
-    private int getMinEntry(double[] distances) {
+    private int getMinEntry(double[] distances, int entries) {
         int minDistanceEntryCol = 0;
-        for (int i = 0; i < distances.length; i++) {
+        for (int i = 0; i < entries; i++) {
             if (distances[i] < distances[minDistanceEntryCol]) {
                 minDistanceEntryCol = i;
             }
@@ -265,56 +520,173 @@ public class SeamCarver {
         if (seam == null) {
             throw new NullPointerException();
         }
+        if (!isValidSeam(seam, height, width) || width <= 1) {
+            throw new IllegalArgumentException();
+        }
+        removeSeam(true, seam);
+    }
 
-        if (isTransposed && !calledFromHorizontal) {
-            transposePicture();
-            isTransposed = false;
+    /**
+     * remove horizontal seam from current picture
+     * @param seam sequence of entries for deletion
+     */
+    public void removeHorizontalSeam(int[] seam) {
+        if (seam == null) {
+            throw new NullPointerException();
+        }
+        if (!isValidSeam(seam, width, height) || height <= 1) {
+            throw new IllegalArgumentException();
         }
+        removeSeam(false, seam);
+    }
 
-        if (!isValidSeam(seam) || width() <= 1) {
+    /**
+     * remove k vertical seams of minimum total energy from current picture, one after another.
+     * Same as k calls of removeVerticalSeam(findVerticalSeam()), but reuses one seam buffer.
+     * Throw a java.lang.IllegalArgumentException unless 0 <= k < width.
+     * @param k number of seams to remove
+     */
+    public void removeVerticalSeams(int k) {
+        if (k < 0 || k >= width) {
             throw new IllegalArgumentException();
         }
-        Picture newPicture = new Picture(width() - 1, height());
-        for (int y = 0; y < height(); y++) { // iterate through rows
-            int i = 0;
-            for (int x = 0; x < width(); x++) { // iterate through columns
-                if (x != seam[y]) { // avoid entry to be deleted
-                   newPicture.set(i, y, picture.get(x, y));
-                   i += 1;
+        int[] seam = new int[height];
+        for (int i = 0; i < k; i++) {
+            findSeam(true, seam);
+            removeSeam(true, seam);
+        }
+    }
+
+    /**
+     * remove k horizontal seams of minimum total energy from current picture, one after another.
+     * Same as k calls of removeHorizontalSeam(findHorizontalSeam()), but reuses one seam buffer.
+     * Throw a java.lang.IllegalArgumentException unless 0 <= k < height.
+     * @param k number of seams to remove
+     */
+    public void removeHorizontalSeams(int k) {
+        if (k < 0 || k >= height) {
+            throw new IllegalArgumentException();
+        }
+        int[] seam = new int[width];
+        for (int i = 0; i < k; i++) {
+            findSeam(false, seam);
+            removeSeam(false, seam);
+        }
+    }
+
+    /**
+     * Shrink current picture to width × height pixels by removing vertical and horizontal seams.
+     * While both dimensions shrink, the order is greedy: the next seam removed is the one with the lower
+     * mean energy per pixel. The cost of the direction not taken is kept as an estimate until the running
+     * direction gets more expensive than it, and only then searched again, so a run of seams in one direction
+     * costs one search per seam.
+     * Throw a java.lang.IllegalArgumentException unless 1 <= width <= width() and 1 <= height <= height().
+     * @param width: new width
+     * @param height: new height
+     */
+    public void resizeTo(int width, int height) {
+        if (width < 1 || height < 1 || width > this.width || height > this.height) {
+            throw new IllegalArgumentException();
+        }
+        int[] verticalSeam = new int[this.height];
+        int[] horizontalSeam = new int[this.width];
+        double verticalCost = 0; // mean energy of the last found vertical seam
+        double horizontalCost = 0;
+        boolean verticalFound = false; // verticalSeam is a seam of current picture
+        boolean horizontalFound = false;
+        while (this.width > width && this.height > height) {
+            boolean vertical = verticalCost <= horizontalCost;
+            if (vertical && !verticalFound) {
+                verticalCost = findSeam(true, verticalSeam) / this.height;
+                verticalFound = true;
+            } else if (!vertical && !horizontalFound) {
+                horizontalCost = findSeam(false, horizontalSeam) / this.width;
+                horizontalFound = true;
+            } else {
+                removeSeam(vertical, vertical ? verticalSeam : horizontalSeam);
+                verticalFound = false;
+                horizontalFound = false;
+            }
+        }
+        removeVerticalSeams(this.width - width);
+        removeHorizontalSeams(this.height - height);
+    }
+
+    /**
+     * Helper method.
+     * Remove a valid seam: shift the pixels and energies after the removed entry of each line, in place,
+     * and recalculate energy next to the seam.
+     * @param vertical: true for a vertical seam
+     * @param seam: sequence of entries for deletion
+     */
+    private void removeSeam(boolean vertical, int[] seam) {
+        if (vertical) {
+            // shift the rest of each row left over the entry to be deleted
+            for (int y = 0; y < height; y++) {
+                int from = y * stride + seam[y] + 1;
+                System.arraycopy(pixels, from, pixels, from - 1, width - seam[y] - 1);
+                System.arraycopy(energies, from, energies, from - 1, width - seam[y] - 1);
+            }
+            width -= 1;
+        } else {
+            // shift each column up over the entry to be deleted.
+            // Goes row by row, so both buffers are still read and written sequentially.
+            int firstRow = height;
+            for (int x = 0; x < width; x++) {
+                firstRow = Math.min(firstRow, seam[x]);
+            }
+            for (int y = firstRow; y < height - 1; y++) {
+                int row = y * stride;
+                for (int x = 0; x < width; x++) {
+                    if (seam[x] <= y) {
+                        pixels[row + x] = pixels[row + stride + x];
+                        energies[row + x] = energies[row + stride + x];
+                    }
                 }
             }
+            height -= 1;
         }
-        picture = newPicture;
-        energyMatrix = new double[width()][height()]; // reset the energy matrix
-        calculateEnergyMatrix();
+        picture = null;
+        updateEnergyAlongSeam(seam, vertical);
     }
 
-    // remove horizontal seam from current picture
-    public void removeHorizontalSeam(int[] seam) {
-        if(!isTransposed) {
-            transposePicture();
-            isTransposed = true;
+    /**
+     * Recalculate energy of the pixels whose neighbours changed when a seam was removed:
+     * the 2 pixels of each line of the seam next to the removed entry.
+     * The entries of adjacent lines differ by at most 1, so a pixel of an adjacent line that got
+     * a new neighbour is one of them too.
+     * @param seam: removed seam
+     * @param vertical: true if the seam was vertical
+     */
+    private void updateEnergyAlongSeam(int[] seam, boolean vertical) {
+        int lines = vertical ? height : width;
+        int entries = vertical ? width : height;
+        for (int i = 0; i < lines; i++) {
+            for (int entry = Math.max(0, seam[i] - 1); entry <= Math.min(entries - 1, seam[i]); entry++) {
+                int x = vertical ? entry : i;
+                int y = vertical ? i : entry;
+                energies[y * stride + x] = energy(x, y);
+            }
         }
-        calledFromHorizontal = true;
-        removeVerticalSeam(seam);
-        calledFromHorizontal = false; // a trick that allows not to transpose until it's required.
     }
 
     /**
      * Helper method
-     * Throw a java.lang.IllegalArgumentException if removeVerticalSeam() is called with an array of the wrong length
-     * or if the array is not a valid seam
+     * Throw a java.lang.IllegalArgumentException if removeVerticalSeam() or removeHorizontalSeam() is called
+     * with an array of the wrong length or if the array is not a valid seam
      * (i.e., either an entry is outside its prescribed range or two adjacent entries differ by more than 1).
      * @param seam sequence of entries for deletion
+     * @param lines expected length of the seam
+     * @param entries number of entries of a line the seam can cross
      * @return true if seam is valid. false otherwise.
      */
-    private boolean isValidSeam(int [] seam) {
-        if (seam.length != height()) {
+    private boolean isValidSeam(int [] seam, int lines, int entries) {
+        if (seam.length != lines) {
             return false;
         }
         for (int i = 0; i < seam.length; i++) {
             int entry = seam[i];
-            if (entry < 0 || entry > width() - 1) {
+            if (entry < 0 || entry > entries - 1) {
                 return false;
             }
             if (i != seam.length - 1) {
@@ -326,20 +698,6 @@ public class SeamCarver {
         return true;
     }
 
-    private void transposePicture() {
-        Picture transposedPicture = new Picture(picture.height(), picture.width());
-        double[][] transposedEnergyMatrix = new double[transposedPicture.width()][transposedPicture.height()];
-        for(int x = 0; x < picture.width(); x++) {
-            for(int y = 0; y < picture.height(); y++) {
-                transposedPicture.set(y, x, picture.get(x, y));
-                transposedEnergyMatrix[y][x] = energyMatrix[x][y];
-            }
-        }
-        // reset picture and energyMatrix to a transposed version
-        picture = transposedPicture;
-        energyMatrix = transposedEnergyMatrix;
-    }
-
     public static void main(String[] args) {
         Picture picture = new Picture("10x12.png");
         SeamCarver seamCarver = new SeamCarver(picture);
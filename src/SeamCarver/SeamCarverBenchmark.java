@@ -0,0 +1,175 @@
+package SeamCarver;
+
+import edu.princeton.cs.algs4.Picture;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.Arrays;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 2. SeamCarver.
+ * Benchmark suite of SeamCarver seam search and removal.
+ *
+ * Every benchmark carves a fresh SeamCarver of the same picture: it's warmed up first, so the JIT compiles it,
+ * then measured over several iterations. Construction is not measured.
+ * It reports the mean time per removed seam and its spread over iterations.
+ * Seam entries are summed into a checksum, so the JIT can't drop the measured work.
+ * With the parallel argument, it compares serial and parallel seam searches on 4K and 8K pictures instead.
+ */
+
+public class SeamCarverBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final int[][] PARALLEL_SIZES = {{3840, 2160}, {7680, 4320}}; // 4K and 8K
+
+    private static long checksum;
+
+    /**
+     * Benchmarked code: carves a fixed number of seams.
+     */
+    private interface Carving {
+        long carve(SeamCarver seamCarver); // returns a checksum of the seams
+    }
+
+    /**
+     * Warms a carving up, then measures it and prints one line of results.
+     * @param seams number of seams removed by one carving
+     */
+    private static void measure(String name, Picture picture, int seams, Carving carving) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            checksum += carving.carve(new SeamCarver(picture));
+        }
+        double[] nanosPerSeam = new double[MEASURED_ITERATIONS];
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            SeamCarver seamCarver = new SeamCarver(picture);
+            long start = System.nanoTime();
+            checksum += carving.carve(seamCarver);
+            nanosPerSeam[i] = (double) (System.nanoTime() - start) / seams;
+        }
+        report(name, nanosPerSeam);
+    }
+
+    /**
+     * Same as measure(), but the carving must leave the SeamCarver as it was, e.g. only find seams,
+     * so every iteration reuses the same one.
+     * @return mean time per seam in nanoseconds
+     */
+    private static double measure(String name, SeamCarver seamCarver, int seams, Carving carving) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            checksum += carving.carve(seamCarver);
+        }
+        double[] nanosPerSeam = new double[MEASURED_ITERATIONS];
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            checksum += carving.carve(seamCarver);
+            nanosPerSeam[i] = (double) (System.nanoTime() - start) / seams;
+        }
+        return report(name, nanosPerSeam);
+    }
+
+    /**
+     * Prints the mean time per seam and its spread.
+     * @return mean time per seam in nanoseconds
+     */
+    private static double report(String name, double[] nanosPerSeam) {
+        double mean = Arrays.stream(nanosPerSeam).average().orElse(0);
+        double variance = Arrays.stream(nanosPerSeam).map(t -> (t - mean) * (t - mean)).sum()
+                / Math.max(1, MEASURED_ITERATIONS - 1);
+        StdOut.printf("%-36s %12.1f us/seam  ± %5.1f%%\n", name, mean / 1e3, 100 * Math.sqrt(variance) / mean);
+        return mean;
+    }
+
+    private static long sum(int[] seam) {
+        long sum = 0;
+        for (int entry : seam) {
+            sum += entry;
+        }
+        return sum;
+    }
+
+    /**
+     * Finds seams without removing them.
+     */
+    private static long search(SeamCarver seamCarver, int seams, boolean vertical) {
+        long sum = 0;
+        for (int i = 0; i < seams; i++) {
+            sum += sum(vertical ? seamCarver.findVerticalSeam() : seamCarver.findHorizontalSeam());
+        }
+        return sum;
+    }
+
+    /**
+     * Compares serial and parallel seam searches on random 4K and 8K pictures.
+     */
+    private static void measureParallel(int seams) {
+        StdOut.printf("%d processors, %d seams per search\n", Runtime.getRuntime().availableProcessors(), seams);
+        for (int[] size : PARALLEL_SIZES) {
+            SeamCarver seamCarver = new SeamCarver(SCUtility.randomPicture(size[0], size[1]));
+            for (boolean vertical : new boolean[] {true, false}) {
+                String name = size[0] + "x" + size[1] + (vertical ? " vertical " : " horizontal ");
+                seamCarver.setParallelThreshold(Integer.MAX_VALUE);
+                double serial = measure(name + "serial", seamCarver, seams,
+                        carver -> search(carver, seams, vertical));
+                seamCarver.setParallelThreshold(SeamCarver.DEFAULT_PARALLEL_THRESHOLD);
+                double parallel = measure(name + "parallel", seamCarver, seams,
+                        carver -> search(carver, seams, vertical));
+                StdOut.printf("%-36s %12.2fx\n", name + "speedup", serial / parallel);
+            }
+        }
+    }
+
+    /**
+     * Removes seams, a vertical one where pattern has a 'V' and a horizontal one where it has an 'H',
+     * repeating the pattern.
+     */
+    private static long carve(SeamCarver seamCarver, int seams, String pattern) {
+        long sum = 0;
+        for (int i = 0; i < seams; i++) {
+            if (pattern.charAt(i % pattern.length()) == 'V') {
+                int[] seam = seamCarver.findVerticalSeam();
+                seamCarver.removeVerticalSeam(seam);
+                sum += sum(seam);
+            } else {
+                int[] seam = seamCarver.findHorizontalSeam();
+                seamCarver.removeHorizontalSeam(seam);
+                sum += sum(seam);
+            }
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) {
+        // args: picture.png [seams], or width height [seams] for a random picture, or parallel [seams]
+        Picture picture;
+        int seams;
+        if (args[0].equals("parallel")) {
+            StdRandom.setSeed(2017);
+            measureParallel(args.length > 1 ? Integer.parseInt(args[1]) : 5);
+            StdOut.println("checksum " + checksum);
+            return;
+        } else if (args.length > 1 && args[0].matches("\\d+")) {
+            StdRandom.setSeed(2017);
+            picture = SCUtility.randomPicture(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+            seams = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        } else {
+            picture = new Picture(args[0]);
+            seams = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        }
+        StdOut.printf("picture %d x %d, %d seams per carving\n", picture.width(), picture.height(), seams);
+
+        measure("vertical seams", picture, seams, seamCarver -> carve(seamCarver, seams, "V"));
+        measure("horizontal seams", picture, seams, seamCarver -> carve(seamCarver, seams, "H"));
+        measure("alternating seams", picture, seams, seamCarver -> carve(seamCarver, seams, "VH"));
+        measure("removeVerticalSeams(k)", picture, seams, seamCarver -> {
+            seamCarver.removeVerticalSeams(seams);
+            return seamCarver.width();
+        });
+        measure("resizeTo(width, height)", picture, seams, seamCarver -> {
+            seamCarver.resizeTo(picture.width() - seams / 2, picture.height() - (seams - seams / 2));
+            return seamCarver.width();
+        });
+        StdOut.println("checksum " + checksum);
+    }
+}
@@ -0,0 +1,95 @@
+package WordNet;
+
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Measures how many bytes of heap SAP and WordNet queries allocate.
+ * Relies on com.sun.management.ThreadMXBean, which is available on HotSpot based JVMs.
+ */
+
+public class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * @return total number of bytes allocated by the calling thread so far
+     */
+    public static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return average number of bytes allocated per SAP.length() + SAP.ancestor() call on random vertex pairs
+     */
+    public static double bytesPerQuery(SAP sap, int V, int queries) {
+        int[] v = new int[queries];
+        int[] w = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            v[i] = StdRandom.uniform(V);
+            w[i] = StdRandom.uniform(V);
+        }
+        runSapQueries(sap, v, w); // warm up: allocates the scratch space of this thread and lets JIT compile
+        long before = allocatedBytes();
+        runSapQueries(sap, v, w);
+        return (double) (allocatedBytes() - before) / queries;
+    }
+
+    /**
+     * @return average number of bytes allocated per WordNet.distance() and sap() call on random noun pairs
+     */
+    public static double bytesPerQuery(WordNet wordNet, int queries) {
+        List<String> nouns = new ArrayList<>();
+        for (String noun : wordNet.nouns()) {
+            nouns.add(noun);
+        }
+        String[] a = new String[queries];
+        String[] b = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            a[i] = nouns.get(StdRandom.uniform(nouns.size()));
+            b[i] = nouns.get(StdRandom.uniform(nouns.size()));
+        }
+        runWordNetQueries(wordNet, a, b);
+        long before = allocatedBytes();
+        runWordNetQueries(wordNet, a, b);
+        return (double) (allocatedBytes() - before) / queries;
+    }
+
+    private static long runSapQueries(SAP sap, int[] v, int[] w) {
+        long checksum = 0;
+        for (int i = 0; i < v.length; i++) {
+            checksum += sap.length(v[i], w[i]) + sap.ancestor(v[i], w[i]);
+        }
+        return checksum;
+    }
+
+    private static long runWordNetQueries(WordNet wordNet, String[] a, String[] b) {
+        long checksum = 0;
+        for (int i = 0; i < a.length; i++) {
+            checksum += wordNet.distance(a[i], b[i]) + wordNet.sap(a[i], b[i]).length();
+        }
+        return checksum;
+    }
+
+    public static void main(String[] args) {
+        // args: digraph.txt, or synsets.txt hypernyms.txt
+        int queries = 100000;
+        if (args.length == 1) {
+            Digraph digraph = new Digraph(new In(args[0]));
+            SAP sap = new SAP(digraph);
+            StdOut.printf("SAP: %.2f bytes per query\n", bytesPerQuery(sap, digraph.V(), queries));
+        } else {
+            WordNet wordNet = new WordNet(args[0], args[1]);
+            StdOut.printf("WordNet.distance() and sap(): %.2f bytes per query\n", bytesPerQuery(wordNet, queries));
+        }
+    }
+}
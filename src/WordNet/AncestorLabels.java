@@ -0,0 +1,171 @@
+package WordNet;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Precomputed ancestor-distance labels of every vertex of a digraph.
+ *
+ * The label of a vertex v lists all vertices reachable from v (its ancestors, v itself included) together with
+ * their distances from v, sorted by ancestor. A shortest ancestral path between v and w is then found by a
+ * merge-join of two labels instead of a graph traversal.
+ * Labels of v are stored in ancestors[offsets[v]] ... ancestors[offsets[v + 1] - 1] and the matching entries of
+ * distances.
+ * Fits shallow digraphs such as WordNet, where every vertex has few ancestors. The size of the labels grows with
+ * the number of reachable pairs of vertices, so it is optional: check memoryFootprint() before enabling it.
+ */
+
+public class AncestorLabels {
+
+    private final int[] offsets;   // length V + 1
+    private final int[] ancestors; // ancestors of each vertex sorted in increasing order
+    private final int[] distances; // distances[i] = distance to ancestors[i]
+    private final long buildTimeMillis;
+
+    /**
+     * Runs a breadth-first search from every vertex.
+     * Runs in time proportional to the total size of the labels times the out-degree.
+     */
+    AncestorLabels(CompactDigraph graph) {
+        this(graph, null, null);
+    }
+
+    /**
+     * Labels of a graph that has changed since previous labels were built (WordNet updates).
+     * Labels of affected vertices and of vertices added since are computed again, all others are copied.
+     * @param affected affected[v] is true if the ancestors of v changed
+     */
+    AncestorLabels(CompactDigraph graph, AncestorLabels previous, boolean[] affected) {
+        long start = System.currentTimeMillis();
+        int V = graph.V();
+        int[] adjOffsets = graph.offsets();
+        int[] adjTargets = graph.targets();
+
+        int[] stamp = new int[V]; // stamp[x] == v + 1 if x is discovered by the search from v
+        int[] queue = new int[V];
+        int[] distTo = new int[V];
+        long[] label = new long[16]; // ancestor and distance of the current vertex packed by pack()
+
+        offsets = new int[V + 1];
+        int[] ancestorsBuffer = new int[2 * V];
+        int[] distancesBuffer = new int[2 * V];
+        int size = 0;
+        for (int v = 0; v < V; v++) {
+            if (previous != null && v < previous.V() && !affected[v]) {
+                int from = previous.offsets[v];
+                int length = previous.offsets[v + 1] - from;
+                if (ancestorsBuffer.length < size + length) {
+                    int newLength = Math.max(size + length, 2 * ancestorsBuffer.length);
+                    ancestorsBuffer = Arrays.copyOf(ancestorsBuffer, newLength);
+                    distancesBuffer = Arrays.copyOf(distancesBuffer, newLength);
+                }
+                offsets[v] = size;
+                System.arraycopy(previous.ancestors, from, ancestorsBuffer, size, length);
+                System.arraycopy(previous.distances, from, distancesBuffer, size, length);
+                size += length;
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            stamp[v] = v + 1;
+            distTo[v] = 0;
+            queue[tail++] = v;
+            while (head < tail) {
+                int vertex = queue[head++];
+                for (int e = adjOffsets[vertex]; e < adjOffsets[vertex + 1]; e++) {
+                    int adjacent = adjTargets[e];
+                    if (stamp[adjacent] != v + 1) {
+                        stamp[adjacent] = v + 1;
+                        distTo[adjacent] = distTo[vertex] + 1;
+                        queue[tail++] = adjacent;
+                    }
+                }
+            }
+            if (label.length < tail) {
+                label = new long[Math.max(tail, 2 * label.length)];
+            }
+            for (int i = 0; i < tail; i++) {
+                label[i] = pack(queue[i], distTo[queue[i]]);
+            }
+            Arrays.sort(label, 0, tail);
+            if (ancestorsBuffer.length < size + tail) {
+                int newLength = Math.max(size + tail, 2 * ancestorsBuffer.length);
+                ancestorsBuffer = Arrays.copyOf(ancestorsBuffer, newLength);
+                distancesBuffer = Arrays.copyOf(distancesBuffer, newLength);
+            }
+            offsets[v] = size;
+            for (int i = 0; i < tail; i++) {
+                ancestorsBuffer[size] = (int) (label[i] >>> 32);
+                distancesBuffer[size] = (int) label[i];
+                size++;
+            }
+        }
+        offsets[V] = size;
+        ancestors = Arrays.copyOf(ancestorsBuffer, size);
+        distances = Arrays.copyOf(distancesBuffer, size);
+        buildTimeMillis = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Wraps labels that were computed before, e.g. loaded by WordNetSnapshot. Build time is reported as 0.
+     */
+    AncestorLabels(int[] offsets, int[] ancestors, int[] distances) {
+        this.offsets = offsets;
+        this.ancestors = ancestors;
+        this.distances = distances;
+        this.buildTimeMillis = 0;
+    }
+
+    // sorts by ancestor first
+    private static long pack(int ancestor, int distance) {
+        return ((long) ancestor << 32) | distance;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] ancestors() {
+        return ancestors;
+    }
+
+    int[] distances() {
+        return distances;
+    }
+
+    // number of vertices labeled
+    public int V() {
+        return offsets.length - 1;
+    }
+
+    // total number of (ancestor, distance) entries of all labels
+    public long size() {
+        return ancestors.length;
+    }
+
+    // approximate number of heap bytes taken by the labels
+    public long memoryFootprint() {
+        return 4L * (offsets.length + ancestors.length + distances.length);
+    }
+
+    // time taken to compute the labels
+    public long buildTimeMillis() {
+        return buildTimeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AncestorLabels: %d vertices, %d entries (%.1f per vertex), %.1f MB, built in %d ms",
+                V(), size(), (double) size() / Math.max(1, V()), memoryFootprint() / (1024.0 * 1024.0),
+                buildTimeMillis);
+    }
+
+    public static void main(String[] args) {
+        // args: synsets.txt hypernyms.txt
+        WordNet wordNet = new WordNet(args[0], args[1], 0, true);
+        StdOut.println(wordNet.ancestorLabels());
+    }
+}
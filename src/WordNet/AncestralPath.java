@@ -0,0 +1,41 @@
+package WordNet;
+
+import java.util.Arrays;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Result of a multi-source shortest ancestral path query, see SAP.path(int[] v, int[] w):
+ * the length and every common ancestor at that length, all found by a single search.
+ */
+
+public final class AncestralPath {
+
+    private final int length;
+    private final int[] ancestors; // sorted
+
+    AncestralPath(int length, int[] ancestors) {
+        this.length = length;
+        this.ancestors = ancestors;
+    }
+
+    // length of a shortest ancestral path; -1 if no such path
+    public int length() {
+        return length;
+    }
+
+    // the smallest common ancestor on a shortest ancestral path; -1 if no such path
+    public int ancestor() {
+        return ancestors.length == 0 ? -1 : ancestors[0];
+    }
+
+    // all common ancestors on a shortest ancestral path, in increasing order; empty if no such path
+    public int[] ancestors() {
+        return ancestors.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "length = " + length + ", ancestors = " + Arrays.toString(ancestors);
+    }
+}
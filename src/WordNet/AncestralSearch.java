@@ -0,0 +1,463 @@
+package WordNet;
+
+import java.util.Arrays;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Lockstep bidirectional breadth-first search used by SAP.
+ *
+ * Both frontiers (ancestors of v and ancestors of w) are expanded one level at a time, always the shallower one first.
+ * Every vertex reached by both searches is a common ancestor; the search stops as soon as no vertex that is still
+ * undiscovered by one of the sides can give a shorter ancestral path than the best one found so far.
+ * Length and ancestor are both available after a single traversal.
+ * Runs in time proportional to the number of vertices and edges actually visited, E + V in the worst case.
+ *
+ * An instance is scratch space that is borrowed from a SearchPool by one query at a time, so it is not thread safe.
+ * Arrays are allocated once, sized by a capacity of at least V, so the same instance serves later versions of a
+ * graph that grew a little; bind() attaches the graph of a query and unbind() lets it go. A distance is valid only if the stamp of a vertex equals the current generation,
+ * so starting a new search resets them in constant time and a search touches only the vertices it visits.
+ *
+ * When AncestorLabels are available, searches merge precomputed labels instead of traversing the graph.
+ *
+ * Every search counts the vertices and edges it visits, for QueryListener. Counting is two additions per
+ * expanded vertex, so it is always on.
+ */
+
+class AncestralSearch {
+
+    private int[] offsets; // of the bound graph; null while idle in a SearchPool
+    private int[] targets;
+    private final Frontier vFrontier;
+    private final Frontier wFrontier;
+    private int generation; // stamp of the current search
+
+    private int length;   // length of a shortest ancestral path found by the last search; -1 if no such path
+    private int ancestor; // common ancestor participating in that path; -1 if no such path
+    private boolean allTies; // collect all tied ancestors, see searchAll()
+    private int[] ties;      // all common ancestors at distance length found by searchAll(); allocated by its first call
+    private int tiesCount;
+    private int verticesVisited; // vertices expanded (label entries scanned) by the last search
+    private int edgesVisited;    // edges followed by the last search; 0 for label searches
+
+    /**
+     * @param capacity: largest number of vertices of a graph this search can be bound to
+     */
+    AncestralSearch(int capacity) {
+        this.vFrontier = new Frontier(capacity);
+        this.wFrontier = new Frontier(capacity);
+    }
+
+    int capacity() {
+        return vFrontier.stamp.length;
+    }
+
+    /**
+     * Runs the following searches on a graph of at most capacity() vertices.
+     * Stamps of earlier graphs are older than the next generation, so nothing has to be cleared.
+     */
+    void bind(CompactDigraph graph) {
+        offsets = graph.offsets();
+        targets = graph.targets();
+    }
+
+    // forget the bound graph, so an idle search doesn't keep it reachable
+    void unbind() {
+        offsets = null;
+        targets = null;
+    }
+
+    /**
+     * Receives vertices found by nearest() in increasing order of their distance.
+     */
+    interface Visitor {
+        /**
+         * @return false to stop the search
+         */
+        boolean visit(int vertex, int distance);
+    }
+
+    /**
+     * Breadth-first search state of one side: distances from the sources and a queue of discovered vertices.
+     * Vertices of the current level are stored between head and tail of the queue.
+     */
+    private static class Frontier {
+        private final int[] stamp;  // stamp[v] == generation if v is discovered by the current search
+        private final int[] distTo; // valid only for discovered vertices
+        private final int[] queue;
+        private int head;
+        private int tail;
+        private int depth; // distance of the vertices in the current level
+
+        private Frontier(int V) {
+            stamp = new int[V];
+            distTo = new int[V];
+            queue = new int[V];
+        }
+
+        private void reset() {
+            head = 0;
+            tail = 0;
+            depth = 0;
+        }
+
+        private boolean isActive() {
+            return head < tail;
+        }
+    }
+
+    /*
+     * Start a new generation. Stamps are cleared only when the counter wraps around.
+     */
+    private void nextGeneration() {
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(vFrontier.stamp, 0);
+            Arrays.fill(wFrontier.stamp, 0);
+            generation = 0;
+        }
+        generation++;
+        vFrontier.reset();
+        wFrontier.reset();
+        verticesVisited = 0;
+        edgesVisited = 0;
+    }
+
+    /**
+     * Runs a search between a single source v and a single source w.
+     */
+    void search(int v, int w) {
+        nextGeneration();
+        length = -1;
+        ancestor = -1;
+        allTies = false;
+        addSource(vFrontier, wFrontier, v);
+        addSource(wFrontier, vFrontier, w);
+        run();
+    }
+
+    /**
+     * Runs a search between a set of sources v and a set of sources w.
+     * Sources are expected to be valid vertices of the graph.
+     */
+    void search(int[] v, int[] w) {
+        search(v, w, false);
+    }
+
+    /**
+     * Same as search(int[] v, int[] w), but goes on until it has found all common ancestors at the shortest
+     * distance, see ties(). Only levels that can still hold a path as short as the best one are expanded,
+     * so it stops one level later than search() at most.
+     */
+    void searchAll(int[] v, int[] w) {
+        search(v, w, true);
+    }
+
+    private void search(int[] v, int[] w, boolean allTies) {
+        nextGeneration();
+        length = -1;
+        ancestor = -1;
+        startTies(allTies);
+        for (int source : v) {
+            addSource(vFrontier, wFrontier, source);
+        }
+        for (int source : w) {
+            addSource(wFrontier, vFrontier, source);
+        }
+        run();
+    }
+
+    /**
+     * Same as search(int v, int w), but merge-joins the labels of v and w.
+     * Runs in time proportional to the total size of both labels.
+     */
+    void search(AncestorLabels labels, int v, int w) {
+        length = -1;
+        ancestor = -1;
+        allTies = false;
+        int[] labelOffsets = labels.offsets();
+        int[] ancestors = labels.ancestors();
+        int[] distances = labels.distances();
+        int i = labelOffsets[v];
+        int j = labelOffsets[w];
+        while (i < labelOffsets[v + 1] && j < labelOffsets[w + 1]) {
+            if (ancestors[i] < ancestors[j]) {
+                i++;
+            } else if (ancestors[i] > ancestors[j]) {
+                j++;
+            } else {
+                found(ancestors[i], distances[i] + distances[j]);
+                i++;
+                j++;
+            }
+        }
+        verticesVisited = i - labelOffsets[v] + j - labelOffsets[w];
+        edgesVisited = 0;
+    }
+
+    /**
+     * Same as search(int[] v, int[] w), but joins the labels of all sources.
+     * Labels of v are merged into the distances of vFrontier, then labels of w are probed against them.
+     * Runs in time proportional to the total size of the labels of all sources.
+     */
+    void search(AncestorLabels labels, int[] v, int[] w) {
+        search(labels, v, w, false);
+    }
+
+    /**
+     * Same as searchAll(int[] v, int[] w), but joins the labels of all sources.
+     */
+    void searchAll(AncestorLabels labels, int[] v, int[] w) {
+        search(labels, v, w, true);
+    }
+
+    /*
+     * an ancestor may be probed from several sources of w, so wFrontier keeps the length at which it joined the ties
+     */
+    private void search(AncestorLabels labels, int[] v, int[] w, boolean allTies) {
+        nextGeneration();
+        length = -1;
+        ancestor = -1;
+        startTies(allTies);
+        int[] labelOffsets = labels.offsets();
+        int[] ancestors = labels.ancestors();
+        int[] distances = labels.distances();
+        for (int source : v) {
+            verticesVisited += labelOffsets[source + 1] - labelOffsets[source];
+            for (int i = labelOffsets[source]; i < labelOffsets[source + 1]; i++) {
+                int vertex = ancestors[i];
+                if (vFrontier.stamp[vertex] != generation || distances[i] < vFrontier.distTo[vertex]) {
+                    vFrontier.stamp[vertex] = generation;
+                    vFrontier.distTo[vertex] = distances[i];
+                }
+            }
+        }
+        for (int source : w) {
+            verticesVisited += labelOffsets[source + 1] - labelOffsets[source];
+            for (int j = labelOffsets[source]; j < labelOffsets[source + 1]; j++) {
+                int vertex = ancestors[j];
+                if (vFrontier.stamp[vertex] == generation) {
+                    int thisLength = vFrontier.distTo[vertex] + distances[j];
+                    if (allTies && wFrontier.stamp[vertex] == generation && wFrontier.distTo[vertex] == thisLength
+                            && thisLength == length) {
+                        continue; // already tied
+                    }
+                    found(vertex, thisLength);
+                    if (allTies && thisLength == length) {
+                        wFrontier.stamp[vertex] = generation;
+                        wFrontier.distTo[vertex] = thisLength;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search from a set of sources over all their ancestors.
+     * @return ancestors of the sources with their distances, packed by pack() and sorted by ancestor
+     */
+    long[] ancestors(int[] sources) {
+        nextGeneration();
+        for (int source : sources) {
+            addSource(vFrontier, wFrontier, source);
+        }
+        while (vFrontier.isActive()) {
+            expandLevel(vFrontier, wFrontier);
+        }
+        long[] ancestors = new long[vFrontier.tail];
+        for (int i = 0; i < vFrontier.tail; i++) {
+            int vertex = vFrontier.queue[i];
+            ancestors[i] = pack(vertex, vFrontier.distTo[vertex]);
+        }
+        Arrays.sort(ancestors);
+        return ancestors;
+    }
+
+    /**
+     * Visits vertices in increasing order of the length of their shortest ancestral path to a set of sources
+     * until the visitor stops the search.
+     * First all ancestors of the sources are found by a breadth-first search on the graph (in vFrontier).
+     * Then a breadth-first search goes down the reversed graph (in wFrontier): an ancestor at distance d joins
+     * the level d of that search, unless it was reached at a lower level already.
+     * Runs in time proportional to the number of vertices and edges visited before the visitor stops.
+     * @param reverse the graph with all edges reversed
+     */
+    void nearest(int[] sources, CompactDigraph reverse, Visitor visitor) {
+        nextGeneration();
+        for (int source : sources) {
+            addSource(vFrontier, wFrontier, source);
+        }
+        while (vFrontier.isActive()) {
+            expandLevel(vFrontier, wFrontier);
+        }
+        int[] ancestors = vFrontier.queue; // all ancestors in increasing order of distance
+        int ancestorsCount = vFrontier.tail;
+        int next = 0;
+        int[] reverseOffsets = reverse.offsets();
+        int[] reverseTargets = reverse.targets();
+        for (int distance = 0; ; distance++) {
+            while (next < ancestorsCount && vFrontier.distTo[ancestors[next]] == distance) {
+                int ancestor = ancestors[next++];
+                if (wFrontier.stamp[ancestor] != generation) {
+                    wFrontier.stamp[ancestor] = generation;
+                    wFrontier.distTo[ancestor] = distance;
+                    wFrontier.queue[wFrontier.tail++] = ancestor;
+                }
+            }
+            if (!wFrontier.isActive() && next == ancestorsCount) {
+                return;
+            }
+            for (int i = wFrontier.head; i < wFrontier.tail; i++) {
+                if (!visitor.visit(wFrontier.queue[i], distance)) {
+                    return;
+                }
+            }
+            int levelEnd = wFrontier.tail;
+            while (wFrontier.head < levelEnd) {
+                int vertex = wFrontier.queue[wFrontier.head++];
+                for (int e = reverseOffsets[vertex]; e < reverseOffsets[vertex + 1]; e++) {
+                    int descendant = reverseTargets[e];
+                    if (wFrontier.stamp[descendant] != generation) {
+                        wFrontier.stamp[descendant] = generation;
+                        wFrontier.distTo[descendant] = distance + 1;
+                        wFrontier.queue[wFrontier.tail++] = descendant;
+                    }
+                }
+            }
+        }
+    }
+
+    // sorts by ancestor first
+    private static long pack(int ancestor, int distance) {
+        return ((long) ancestor << 32) | distance;
+    }
+
+    /**
+     * Merge-join of two results of ancestors().
+     * @return length of a shortest ancestral path between the two sets of sources; -1 if no such path
+     */
+    static int length(long[] vAncestors, long[] wAncestors) {
+        int length = -1;
+        int i = 0;
+        int j = 0;
+        while (i < vAncestors.length && j < wAncestors.length) {
+            int vAncestor = (int) (vAncestors[i] >>> 32);
+            int wAncestor = (int) (wAncestors[j] >>> 32);
+            if (vAncestor < wAncestor) {
+                i++;
+            } else if (vAncestor > wAncestor) {
+                j++;
+            } else {
+                int thisLength = (int) vAncestors[i] + (int) wAncestors[j];
+                if (length == -1 || thisLength < length) {
+                    length = thisLength;
+                }
+                i++;
+                j++;
+            }
+        }
+        return length;
+    }
+
+    private void addSource(Frontier frontier, Frontier other, int source) {
+        if (frontier.stamp[source] != generation) {
+            frontier.stamp[source] = generation;
+            frontier.distTo[source] = 0;
+            frontier.queue[frontier.tail++] = source;
+            if (other.stamp[source] == generation) {
+                found(source, 0);
+            }
+        }
+    }
+
+    private void run() {
+        while (vFrontier.isActive() || wFrontier.isActive()) {
+            // the shortest ancestral path that is not discovered yet is at least one level deeper than a frontier
+            int lowerBound = Math.min(vFrontier.isActive() ? vFrontier.depth + 1 : Integer.MAX_VALUE,
+                    wFrontier.isActive() ? wFrontier.depth + 1 : Integer.MAX_VALUE);
+            if (length != -1 && (lowerBound > length || lowerBound == length && !allTies)) {
+                break;
+            }
+            if (vFrontier.isActive() && (!wFrontier.isActive() || vFrontier.depth <= wFrontier.depth)) {
+                expandLevel(vFrontier, wFrontier);
+            } else {
+                expandLevel(wFrontier, vFrontier);
+            }
+        }
+    }
+
+    /*
+     * Helper method for run().
+     * Discovers all vertices adjacent to the current level of a frontier and checks each of them against the
+     * distances of the other frontier.
+     */
+    private void expandLevel(Frontier frontier, Frontier other) {
+        int levelEnd = frontier.tail;
+        int nextDepth = frontier.depth + 1;
+        verticesVisited += levelEnd - frontier.head;
+        while (frontier.head < levelEnd) {
+            int vertex = frontier.queue[frontier.head++];
+            edgesVisited += offsets[vertex + 1] - offsets[vertex];
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                int adjacent = targets[e];
+                if (frontier.stamp[adjacent] != generation) {
+                    frontier.stamp[adjacent] = generation;
+                    frontier.distTo[adjacent] = nextDepth;
+                    frontier.queue[frontier.tail++] = adjacent;
+                    if (other.stamp[adjacent] == generation) {
+                        found(adjacent, nextDepth + other.distTo[adjacent]);
+                    }
+                }
+            }
+        }
+        frontier.depth = nextDepth;
+    }
+
+    private void startTies(boolean allTies) {
+        this.allTies = allTies;
+        tiesCount = 0;
+        if (allTies && ties == null) {
+            ties = new int[vFrontier.queue.length]; // every vertex is a common ancestor once at most
+        }
+    }
+
+    /*
+     * a common ancestor at the given total distance is found
+     */
+    private void found(int vertex, int thisLength) {
+        if (length == -1 || thisLength < length) {
+            length = thisLength;
+            ancestor = vertex;
+            tiesCount = 0;
+        } else if (thisLength > length || !allTies) {
+            return;
+        }
+        if (allTies) {
+            ties[tiesCount++] = vertex;
+        }
+    }
+
+    /**
+     * @return all common ancestors at distance length() found by the last searchAll(), sorted
+     */
+    int[] ties() {
+        int[] sorted = Arrays.copyOf(ties, tiesCount);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    int length() {
+        return length;
+    }
+
+    int ancestor() {
+        return ancestor;
+    }
+
+    int verticesVisited() {
+        return verticesVisited;
+    }
+
+    int edgesVisited() {
+        return edgesVisited;
+    }
+}
@@ -0,0 +1,180 @@
+package WordNet;
+
+import edu.princeton.cs.algs4.Digraph;
+
+import java.util.Arrays;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Immutable digraph in compressed sparse row form.
+ *
+ * Vertices adjacent from v are stored in targets[offsets[v]] ... targets[offsets[v + 1] - 1].
+ * Unlike the Bag based adjacency lists of Digraph, iterating over them does not allocate an iterator,
+ * so traversals over a CompactDigraph produce no garbage.
+ */
+
+class CompactDigraph {
+
+    private final int[] offsets; // offsets[v] = position of the first vertex adjacent from v in targets. Length V + 1.
+    private final int[] targets; // heads of all edges grouped by their tails.
+
+    /**
+     * Copies a Digraph. Adjacent vertices of each vertex keep the order of Digraph.adj().
+     */
+    CompactDigraph(Digraph G) {
+        offsets = new int[G.V() + 1];
+        targets = new int[G.E()];
+        int e = 0;
+        for (int v = 0; v < G.V(); v++) {
+            offsets[v] = e;
+            for (int w : G.adj(v)) {
+                targets[e++] = w;
+            }
+        }
+        offsets[G.V()] = e;
+    }
+
+    /**
+     * Wraps arrays that are already in compressed sparse row form, e.g. loaded by WordNetSnapshot.
+     */
+    CompactDigraph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Builds a digraph on V vertices from E edges tails[i]->heads[i].
+     * Groups the edges by their tails with a counting sort, keeping the order of edges of each vertex.
+     */
+    CompactDigraph(int V, int[] tails, int[] heads, int E) {
+        offsets = new int[V + 1];
+        targets = new int[E];
+        for (int i = 0; i < E; i++) {
+            offsets[tails[i] + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = Arrays.copyOf(offsets, V);
+        for (int i = 0; i < E; i++) {
+            targets[next[tails[i]]++] = heads[i];
+        }
+    }
+
+    int V() {
+        return offsets.length - 1;
+    }
+
+    int E() {
+        return targets.length;
+    }
+
+    /**
+     * @return a digraph with all edges of this one reversed, e.g. hyponym edges of a hypernym digraph
+     */
+    CompactDigraph reverse() {
+        int V = V();
+        int[] tails = new int[E()];
+        int[] heads = new int[E()];
+        for (int v = 0; v < V; v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                tails[e] = targets[e];
+                heads[e] = v;
+            }
+        }
+        return new CompactDigraph(V, tails, heads, E());
+    }
+
+    /**
+     * @return a copy of this digraph grown to V vertices, with count more edges tails[i]->heads[i]
+     */
+    CompactDigraph withEdges(int V, int[] tails, int[] heads, int count) {
+        int E = E() + count;
+        int[] allTails = new int[E];
+        int[] allHeads = new int[E];
+        for (int v = 0; v < V(); v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                allTails[e] = v;
+                allHeads[e] = targets[e];
+            }
+        }
+        System.arraycopy(tails, 0, allTails, E(), count);
+        System.arraycopy(heads, 0, allHeads, E(), count);
+        return new CompactDigraph(V, allTails, allHeads, E);
+    }
+
+    boolean hasEdge(int v, int w) {
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+            if (targets[e] == w) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Breadth-first search from a source.
+     * @return all vertices reachable from the source, the source included, in order of their distance
+     */
+    int[] reachableFrom(int source) {
+        boolean[] marked = new boolean[V()];
+        int[] queue = new int[V()];
+        int head = 0;
+        int tail = 0;
+        marked[source] = true;
+        queue[tail++] = source;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                if (!marked[targets[e]]) {
+                    marked[targets[e]] = true;
+                    queue[tail++] = targets[e];
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
+    }
+
+    int outdegree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Kahn's algorithm: repeatedly removes vertices without incoming edges.
+     * Runs in time proportional to E + V.
+     * @return true if the digraph has a directed cycle
+     */
+    boolean hasCycle() {
+        int V = V();
+        int[] indegree = new int[V];
+        for (int w : targets) {
+            indegree[w]++;
+        }
+        int[] queue = new int[V];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < V; v++) {
+            if (indegree[v] == 0) {
+                queue[tail++] = v;
+            }
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                if (--indegree[targets[e]] == 0) {
+                    queue[tail++] = targets[e];
+                }
+            }
+        }
+        return tail < V; // vertices on a cycle never lose all their incoming edges
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+}
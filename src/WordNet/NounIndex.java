@@ -0,0 +1,278 @@
+package WordNet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Immutable, compact noun dictionary: noun : noun id : synset set id.
+ *
+ * Every noun is stored once, as UTF-8 bytes in a single byte array (pool), the bytes of noun id are
+ * pool[offsets[id]] ... pool[offsets[id + 1] - 1]. An open addressing table of noun ids, keyed by String.hashCode(),
+ * finds the id of a noun by comparing the query with the pool bytes, so lookups create no objects and
+ * no Strings are kept for the dictionary: a noun is decoded only when noun() or nouns() asks for it.
+ * This takes a few MB for the whole WordNet, against tens of MB for a HashMap of Strings.
+ *
+ * The pool is built once with the WordNet and is never copied again. Nouns added by updates live in a small
+ * extra segment that is copied when it changes, together with the array of synset set ids.
+ */
+
+class NounIndex {
+
+    // pool segment, never modified after construction
+    private final byte[] pool;
+    private final int[] offsets; // length poolSize + 1
+    private final int[] table;   // noun id + 1 at the slot of its hash, 0 if the slot is empty
+    private final int poolSize;
+
+    // extra segment: nouns added after construction, with ids poolSize, poolSize + 1, ...
+    private final String[] extraNouns;
+    private final Map<String, Integer> extraIds;
+
+    private final int[] setIds; // synset set id of each noun id
+
+    /**
+     * Wraps a pool that was built before, e.g. loaded by WordNetSnapshot. Only the lookup table is built.
+     */
+    NounIndex(byte[] pool, int[] offsets, int[] setIds) {
+        this.pool = pool;
+        this.offsets = offsets;
+        this.poolSize = offsets.length - 1;
+        this.table = new int[Math.max(2, Integer.highestOneBit(Math.max(1, 2 * poolSize - 1)) << 1)];
+        for (int id = 0; id < poolSize; id++) {
+            int slot = hash(pool, offsets[id], offsets[id + 1]) & (table.length - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = id + 1;
+        }
+        this.extraNouns = new String[0];
+        this.extraIds = new HashMap<>();
+        this.setIds = setIds;
+    }
+
+    private NounIndex(NounIndex pool, String[] extraNouns, Map<String, Integer> extraIds, int[] setIds) {
+        this.pool = pool.pool;
+        this.offsets = pool.offsets;
+        this.table = pool.table;
+        this.poolSize = pool.poolSize;
+        this.extraNouns = extraNouns;
+        this.extraIds = extraIds;
+        this.setIds = setIds;
+    }
+
+    /**
+     * Encodes nouns into a pool.
+     * @param nouns distinct nouns indexed by their ids
+     * @param setIds synset set id of each noun
+     */
+    static NounIndex of(String[] nouns, int[] setIds) {
+        int[] offsets = new int[nouns.length + 1];
+        byte[] pool = new byte[16 * nouns.length + 16];
+        int size = 0;
+        for (int id = 0; id < nouns.length; id++) {
+            byte[] bytes = nouns[id].getBytes(StandardCharsets.UTF_8);
+            if (pool.length < size + bytes.length) {
+                pool = Arrays.copyOf(pool, Math.max(size + bytes.length, 2 * pool.length));
+            }
+            System.arraycopy(bytes, 0, pool, size, bytes.length);
+            size += bytes.length;
+            offsets[id + 1] = size;
+        }
+        return new NounIndex(Arrays.copyOf(pool, size), offsets, setIds);
+    }
+
+    /*
+     * String.hashCode() of the UTF-8 bytes pool[from] ... pool[to - 1], computed without decoding them
+     */
+    private static int hash(byte[] pool, int from, int to) {
+        int h = 0;
+        int i = from;
+        while (i < to) {
+            int b = pool[i] & 0xff;
+            if (b < 0x80) {
+                h = 31 * h + b;
+                i++;
+                continue;
+            }
+            int codePoint;
+            if (b < 0xe0) {
+                codePoint = ((b & 0x1f) << 6) | (pool[i + 1] & 0x3f);
+                i += 2;
+            } else if (b < 0xf0) {
+                codePoint = ((b & 0x0f) << 12) | ((pool[i + 1] & 0x3f) << 6) | (pool[i + 2] & 0x3f);
+                i += 3;
+            } else {
+                codePoint = ((b & 0x07) << 18) | ((pool[i + 1] & 0x3f) << 12) | ((pool[i + 2] & 0x3f) << 6)
+                        | (pool[i + 3] & 0x3f);
+                i += 4;
+            }
+            if (Character.isBmpCodePoint(codePoint)) {
+                h = 31 * h + codePoint;
+            } else {
+                h = 31 * (31 * h + Character.highSurrogate(codePoint)) + Character.lowSurrogate(codePoint);
+            }
+        }
+        return h;
+    }
+
+    /*
+     * does the pool noun id equal noun? Compares chars with bytes while they are ASCII.
+     */
+    private boolean matches(int id, String noun) {
+        int from = offsets[id];
+        int length = offsets[id + 1] - from;
+        if (noun.length() > length) {
+            return false; // UTF-8 takes at least one byte per char
+        }
+        for (int i = 0; i < noun.length(); i++) {
+            char c = noun.charAt(i);
+            if (c >= 0x80) {
+                return Arrays.equals(noun.getBytes(StandardCharsets.UTF_8),
+                        Arrays.copyOfRange(pool, from, from + length));
+            }
+            if (pool[from + i] != c) {
+                return false;
+            }
+        }
+        return noun.length() == length;
+    }
+
+    /**
+     * @return id of a noun; -1 if it is not a noun
+     */
+    int id(String noun) {
+        int slot = noun.hashCode() & (table.length - 1);
+        for (int entry = table[slot]; entry != 0; entry = table[slot]) {
+            if (matches(entry - 1, noun)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        if (extraNouns.length == 0) {
+            return -1;
+        }
+        Integer id = extraIds.get(noun);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return noun of an id, decoded from the pool
+     */
+    String noun(int id) {
+        if (id >= poolSize) {
+            return extraNouns[id - poolSize];
+        }
+        return new String(pool, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return synset set id of a noun; -1 if it is not a noun
+     */
+    int setId(String noun) {
+        int id = id(noun);
+        return id == -1 ? -1 : setIds[id];
+    }
+
+    boolean contains(String noun) {
+        return id(noun) != -1;
+    }
+
+    int size() {
+        return setIds.length;
+    }
+
+    // nouns in order of their ids, each decoded when the iterator reaches it
+    Iterable<String> nouns() {
+        return () -> new Iterator<String>() {
+            private int id = 0;
+
+            @Override
+            public boolean hasNext() {
+                return id < size();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return noun(id++);
+            }
+        };
+    }
+
+    /**
+     * @return a copy of this index where nouns of changes map to their new synset set ids.
+     * Nouns that are not in this index get the next ids.
+     */
+    NounIndex with(Map<String, Integer> changes) {
+        int[] newSetIds = setIds;
+        String[] newExtraNouns = extraNouns;
+        Map<String, Integer> newExtraIds = extraIds;
+        for (Map.Entry<String, Integer> change : changes.entrySet()) {
+            int id = id(change.getKey());
+            if (id == -1) {
+                if (newExtraNouns == extraNouns) {
+                    newExtraIds = new HashMap<>(extraIds);
+                }
+                id = poolSize + newExtraNouns.length;
+                newExtraNouns = Arrays.copyOf(newExtraNouns, newExtraNouns.length + 1);
+                newExtraNouns[newExtraNouns.length - 1] = change.getKey();
+                newExtraIds.put(change.getKey(), id);
+            }
+            if (newSetIds.length <= id) {
+                newSetIds = Arrays.copyOf(newSetIds, id + 1);
+            } else if (newSetIds == setIds) {
+                newSetIds = setIds.clone();
+            }
+            newSetIds[id] = change.getValue();
+        }
+        return new NounIndex(this, newExtraNouns, newExtraIds, newSetIds);
+    }
+
+    /**
+     * @return an index with the same ids where the extra segment is moved into the pool
+     */
+    NounIndex compacted() {
+        if (extraNouns.length == 0) {
+            return this;
+        }
+        byte[][] extraBytes = new byte[extraNouns.length][];
+        int length = offsets[poolSize];
+        for (int i = 0; i < extraNouns.length; i++) {
+            extraBytes[i] = extraNouns[i].getBytes(StandardCharsets.UTF_8);
+            length += extraBytes[i].length;
+        }
+        byte[] newPool = Arrays.copyOf(pool, length);
+        int[] newOffsets = Arrays.copyOf(offsets, poolSize + extraNouns.length + 1);
+        for (int i = 0; i < extraNouns.length; i++) {
+            int from = newOffsets[poolSize + i];
+            System.arraycopy(extraBytes[i], 0, newPool, from, extraBytes[i].length);
+            newOffsets[poolSize + i + 1] = from + extraBytes[i].length;
+        }
+        return new NounIndex(newPool, newOffsets, setIds);
+    }
+
+    byte[] pool() {
+        return pool;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] setIds() {
+        return setIds;
+    }
+
+    // approximate number of heap bytes taken by the pool segment and the synset set ids
+    long memoryFootprint() {
+        return pool.length + 4L * (offsets.length + table.length + setIds.length);
+    }
+}
@@ -16,6 +16,8 @@ import edu.princeton.cs.algs4.StdOut;
 
 public class Outcast {
 
+    private static final int PARALLEL_THRESHOLD = 64; // compute distances in parallel for lists of this many nouns
+
     private final WordNet wordNet;
 
     // constructor takes a WordNet object
@@ -24,21 +26,18 @@ public class Outcast {
     }
 
     // given an array of WordNet nouns, return an outcast
+    // all pairwise distances are computed in one batch by WordNet.distances()
     public String outcast(String[] nouns) {
-        // System.out.println("HEY");
+        int[][] distances = wordNet.distances(nouns, nouns.length >= PARALLEL_THRESHOLD);
         int thisDistance = 0;
         int maxDistance = 0;
         String outcast = "";
-        for (String thisNoun : nouns) {
-            // System.out.println("\n " + thisNoun + "\n");
-            int n = 0;
-            for(String otherNoun : nouns) {
-                n++;
-                thisDistance += wordNet.distance(thisNoun, otherNoun);
-                // System.out.println(n + ". " + otherNoun + " " + thisDistance);
+        for (int i = 0; i < nouns.length; i++) {
+            for (int distance : distances[i]) {
+                thisDistance += distance;
             }
             if (thisDistance > maxDistance) {
-                outcast = thisNoun;
+                outcast = nouns[i];
                 maxDistance = thisDistance;
             }
             thisDistance = 0;
@@ -0,0 +1,27 @@
+package WordNet;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Receives the metrics of every query of a SAP or a WordNet, see SAP.setListener() and WordNet.setListener().
+ *
+ * A query runs in up to three phases, each timed separately:
+ * lookup - WordNet: nouns to synset sets; SAP: copying Iterable arguments. 0 for SAP queries on single vertices.
+ * cache  - lookup of the pair in the SAPCache. 0 if caching is disabled.
+ * search - the bidirectional breadth-first search, or the merge-join of AncestorLabels, which finds the closest
+ *          common ancestor as it goes. 0 if the cache answered the query.
+ * Called by the querying thread right after the query, so implementations must be thread safe and fast.
+ * While no listener is set, queries don't read the clock at all.
+ */
+
+public interface QueryListener {
+
+    /**
+     * @param verticesVisited vertices expanded by the search (label entries scanned if AncestorLabels are
+     *                        enabled); 0 if the cache answered the query
+     * @param edgesVisited edges followed by the search; 0 if the cache answered the query or labels are enabled
+     * @param cached true if the query went through a SAPCache, hit or miss
+     */
+    void queryCompleted(long lookupNanos, long cacheNanos, long searchNanos, int verticesVisited, int edgesVisited,
+                        boolean cached, boolean cacheHit);
+}
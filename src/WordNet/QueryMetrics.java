@@ -0,0 +1,207 @@
+package WordNet;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Aggregated metrics of the queries of one WordNet or SAP: latency histogram, per-phase mean times,
+ * vertices and edges visited, cache hits and misses.
+ *
+ * Disabled when constructed. setEnabled(true) installs it as the QueryListener of its WordNet or SAP,
+ * setEnabled(false) removes it again, so disabled metrics cost nothing. After register() the switch and all
+ * values are available to any JMX client (e.g. jconsole) under WordNet:type=QueryMetrics,name=..., so metrics
+ * can be turned on in a running process.
+ */
+
+public class QueryMetrics implements QueryListener, QueryMetricsMBean {
+
+    private final Consumer<QueryListener> target; // setListener() of the WordNet or SAP
+    private volatile boolean enabled;
+
+    private final LatencyHistogram latencies = new LatencyHistogram(); // nanoseconds of all phases
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder verticesVisited = new LongAdder();
+    private final LongAdder edgesVisited = new LongAdder();
+    private final LongAdder lookupNanos = new LongAdder();
+    private final LongAdder cacheNanos = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    public QueryMetrics(WordNet wordNet) {
+        if (wordNet == null) {
+            throw new IllegalArgumentException();
+        }
+        this.target = wordNet::setListener;
+    }
+
+    public QueryMetrics(SAP sap) {
+        if (sap == null) {
+            throw new IllegalArgumentException();
+        }
+        this.target = sap::setListener;
+    }
+
+    @Override
+    public void queryCompleted(long lookupNanos, long cacheNanos, long searchNanos, int verticesVisited,
+                               int edgesVisited, boolean cached, boolean cacheHit) {
+        latencies.record(lookupNanos + cacheNanos + searchNanos);
+        this.lookupNanos.add(lookupNanos);
+        this.cacheNanos.add(cacheNanos);
+        this.searchNanos.add(searchNanos);
+        this.verticesVisited.add(verticesVisited);
+        this.edgesVisited.add(edgesVisited);
+        if (cacheHit) {
+            cacheHits.increment();
+        } else if (cached) {
+            cacheMisses.increment();
+        }
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     * Throws a java.lang.IllegalArgumentException if the name is taken or not a valid ObjectName value.
+     */
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("WordNet:type=QueryMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException | NullPointerException e) {
+            throw new IllegalArgumentException("can't register " + name, e);
+        }
+    }
+
+    // latencies of whole queries, in nanoseconds
+    public LatencyHistogram latencies() {
+        return latencies;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        target.accept(enabled ? this : null);
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        verticesVisited.reset();
+        edgesVisited.reset();
+        lookupNanos.reset();
+        cacheNanos.reset();
+        searchNanos.reset();
+    }
+
+    @Override
+    public long getQueries() {
+        return latencies.count();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getMeanVerticesVisited() {
+        return perQuery(verticesVisited.sum());
+    }
+
+    @Override
+    public double getMeanEdgesVisited() {
+        return perQuery(edgesVisited.sum());
+    }
+
+    @Override
+    public double getMeanLookupMicros() {
+        return perQuery(lookupNanos.sum()) / 1e3;
+    }
+
+    @Override
+    public double getMeanCacheMicros() {
+        return perQuery(cacheNanos.sum()) / 1e3;
+    }
+
+    @Override
+    public double getMeanSearchMicros() {
+        return perQuery(searchNanos.sum()) / 1e3;
+    }
+
+    @Override
+    public double getMeanLatencyMicros() {
+        return latencies.mean() / 1e3;
+    }
+
+    @Override
+    public double getP50LatencyMicros() {
+        return latencies.percentile(50) / 1e3;
+    }
+
+    @Override
+    public double getP99LatencyMicros() {
+        return latencies.percentile(99) / 1e3;
+    }
+
+    @Override
+    public double getP999LatencyMicros() {
+        return latencies.percentile(99.9) / 1e3;
+    }
+
+    @Override
+    public double getMaxLatencyMicros() {
+        return latencies.max() / 1e3;
+    }
+
+    private double perQuery(long total) {
+        long queries = getQueries();
+        return queries == 0 ? 0 : (double) total / queries;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryMetrics: queries = %d, cache hits = %d, misses = %d, "
+                        + "vertices visited = %.1f, edges visited = %.1f per query, "
+                        + "lookup = %.2f us, cache = %.2f us, search = %.2f us per query\nlatency ns: %s",
+                getQueries(), getCacheHits(), getCacheMisses(), getMeanVerticesVisited(), getMeanEdgesVisited(),
+                getMeanLookupMicros(), getMeanCacheMicros(), getMeanSearchMicros(), latencies);
+    }
+
+    public static void main(String[] args) {
+        // args: synsets.txt hypernyms.txt
+        WordNet wordNet = new WordNet(args[0], args[1], 1 << 14);
+        QueryMetrics metrics = new QueryMetrics(wordNet);
+        metrics.register("main");
+        metrics.setEnabled(true);
+
+        List<String> nouns = new ArrayList<>();
+        for (String noun : wordNet.nouns()) {
+            nouns.add(noun);
+        }
+        for (int i = 0; i < 100000; i++) {
+            wordNet.distance(nouns.get(StdRandom.uniform(nouns.size())), nouns.get(StdRandom.uniform(nouns.size())));
+        }
+        StdOut.println(metrics);
+    }
+}
@@ -0,0 +1,42 @@
+package WordNet;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * JMX management interface of QueryMetrics. Times are in microseconds.
+ */
+
+public interface QueryMetricsMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void reset();
+
+    long getQueries();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    double getMeanVerticesVisited();
+
+    double getMeanEdgesVisited();
+
+    double getMeanLookupMicros();
+
+    double getMeanCacheMicros();
+
+    double getMeanSearchMicros();
+
+    double getMeanLatencyMicros();
+
+    double getP50LatencyMicros();
+
+    double getP99LatencyMicros();
+
+    double getP999LatencyMicros();
+
+    double getMaxLatencyMicros();
+}
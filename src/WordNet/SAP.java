@@ -2,6 +2,8 @@ package WordNet;
 
 import edu.princeton.cs.algs4.*;
 
+import java.util.Arrays;
+
 /**
  * Algorithms Part II by Princeton University
  * Programming assignment 1. WN.
@@ -9,27 +11,93 @@ import edu.princeton.cs.algs4.*;
  * 20-Aug-2017.
  * This class represents a shortest ancestral path between
  * any two given vertices in a directed graph.
+ *
+ * Thread safety: SAP is immutable (apart from an optional QueryListener) and all queries may be called concurrently
+ * without any locks.
+ * Every query borrows scratch space from a SearchPool shared with later versions (see WordNet), AncestorLabels
+ * are read-only and SAPCache is split into independently locked segments.
  */
 
 public class SAP {
 
-    private final Digraph graph; // instance variable to store a graph
+    private final CompactDigraph graph; // instance variable to store a graph
+    // visited counts of the last search of each thread, for report(): two ints per thread, shared by all instances
+    private static final ThreadLocal<int[]> LAST_COUNTS = ThreadLocal.withInitial(() -> new int[2]);
+
+    private final SearchPool searches; // scratch space borrowed by each query
+    private final SAPCache cache; // results of single vertex queries; null if caching is disabled
+    private final AncestorLabels labels; // precomputed ancestors of every vertex; null if not enabled
+    // graph with reversed edges, built by the first nearest() call or carried over from the previous version
+    private volatile CompactDigraph reverse;
+    private volatile QueryListener listener; // receives metrics of every query; null if metrics are off
 
     /**
      * constructor takes a digraph (not necessarily a DAG).
      * DAG = directed acyclic graph.
      */
     public SAP(Digraph G) {
-        if (G == null) throw new IllegalArgumentException();
-        graph = new Digraph(G); // a defensive copy. Keep SAP immutable.
+        this(G, 0);
     }
 
     /**
-     * @param v: vertex in a graph
-     * @return Stack containing all ancestors of v.
+     * Same as SAP(Digraph G), but keeps results of up to cacheCapacity most recently queried
+     * pairs of vertices. Caching is disabled if cacheCapacity is 0.
      */
-    private Stack getAncestors(int v) {
-        return (Stack) new BreadthFirstDirectedPaths(graph, v).pathTo(0);
+    public SAP(Digraph G, int cacheCapacity) {
+        this(G, cacheCapacity, false);
+    }
+
+    /**
+     * Same as SAP(Digraph G, int cacheCapacity).
+     * If ancestorLabels is true, precomputes AncestorLabels of all vertices, so queries merge-join two labels
+     * instead of traversing the graph. Meant for shallow digraphs, see AncestorLabels.
+     */
+    public SAP(Digraph G, int cacheCapacity, boolean ancestorLabels) {
+        this(compactCopyOf(G), cacheCapacity, ancestorLabels);
+    }
+
+    /**
+     * Same as SAP(Digraph G, int cacheCapacity, boolean ancestorLabels) for a graph that is already compact.
+     * CompactDigraph is immutable, so it is shared instead of copied. Used by WordNet.
+     */
+    SAP(CompactDigraph G, int cacheCapacity, boolean ancestorLabels) {
+        this(G, cacheCapacity, ancestorLabels && G != null ? new AncestorLabels(G) : null);
+    }
+
+    /**
+     * Same as SAP(CompactDigraph G, int cacheCapacity, boolean ancestorLabels) with labels that were computed
+     * before; null if not enabled. Used by WordNetSnapshot.
+     */
+    SAP(CompactDigraph G, int cacheCapacity, AncestorLabels ancestorLabels) {
+        this(G, cacheCapacity, ancestorLabels, new SearchPool());
+    }
+
+    /**
+     * Same as SAP(CompactDigraph G, int cacheCapacity, AncestorLabels ancestorLabels) with the scratch space of
+     * an earlier version, see searchPool(). Used by WordNet updates.
+     */
+    SAP(CompactDigraph G, int cacheCapacity, AncestorLabels ancestorLabels, SearchPool searchPool) {
+        this(G, cacheCapacity, ancestorLabels, searchPool, null);
+    }
+
+    /**
+     * Same as SAP(CompactDigraph G, int cacheCapacity, AncestorLabels ancestorLabels, SearchPool searchPool)
+     * with the reverse of G, kept up to date by WordNet updates; null to build it when it is first needed.
+     */
+    SAP(CompactDigraph G, int cacheCapacity, AncestorLabels ancestorLabels, SearchPool searchPool,
+        CompactDigraph reverse) {
+        if (G == null || cacheCapacity < 0 || searchPool == null) throw new IllegalArgumentException();
+        graph = G;
+        searches = searchPool;
+        this.reverse = reverse;
+        cache = cacheCapacity > 0 ? new SAPCache(cacheCapacity) : null;
+        labels = ancestorLabels;
+    }
+
+    // a defensive copy. Keep SAP immutable.
+    private static CompactDigraph compactCopyOf(Digraph G) {
+        if (G == null) throw new IllegalArgumentException();
+        return new CompactDigraph(G);
     }
 
     /**
@@ -38,31 +106,17 @@ public class SAP {
      * @return length of shortest ancestral path between v and w; -1 if no such path
      */
     public int length(int v, int w) {
-        if (v < 0 || w < 0 || v > graph.V() - 1 || w > graph.V() - 1) {
-            throw new IllegalArgumentException();
-        }
-        int closestCommonAncestor = ancestor(v, w);
-        if (closestCommonAncestor < 0) {
-            return -1;
-        }
-        BreadthFirstDirectedPaths vBreadth = new BreadthFirstDirectedPaths(graph, v);
-        BreadthFirstDirectedPaths wBreadth = new BreadthFirstDirectedPaths(graph, w);
-        return vBreadth.distTo(closestCommonAncestor) + wBreadth.distTo(closestCommonAncestor);
+        return SAPCache.length(query(v, w));
     }
 
     /**
      * A common ancestor of v and w that participates in a shortest ancestral path; -1 if no such path.
      * Finds a common ancestor of v and w to which the total distance from v and w to the ancestor is the
      * shortest.
-     * Executes at time proportional to E + V in the worst case.
+     * Executes at time proportional to the number of vertices visited by AncestralSearch, E + V in the worst case.
      */
     public int ancestor(int v, int w) {
-        if (v < 0 || w < 0 || v > graph.V() - 1 || w > graph.V() - 1) {
-            throw new IllegalArgumentException();
-        }
-        BreadthFirstDirectedPaths vBreadth = new BreadthFirstDirectedPaths(graph, v);
-        BreadthFirstDirectedPaths wBreadth = new BreadthFirstDirectedPaths(graph, w);
-        return computeClosestCommonAncestor(vBreadth, wBreadth);
+        return SAPCache.ancestor(query(v, w));
     }
 
     /**
@@ -70,66 +124,281 @@ public class SAP {
      * @return length of shortest ancestral path between any vertex in v and any vertex in w; -1 if no such path
      */
     public int length(Iterable<Integer> v, Iterable<Integer> w) {
-        if(v == null || w == null || !isArgValid(v) || !isArgValid(w)) {
-            throw new IllegalArgumentException();
-        }
-        int closestCommonAncestor = ancestor(v, w);
-        if (closestCommonAncestor < 0) {
-            return -1;
-        }
-        BreadthFirstDirectedPaths vBreadth = new BreadthFirstDirectedPaths(graph, v);
-        BreadthFirstDirectedPaths wBreadth = new BreadthFirstDirectedPaths(graph, w);
-        return vBreadth.distTo(closestCommonAncestor) + wBreadth.distTo(closestCommonAncestor);
+        return SAPCache.length(query(v, w));
     }
 
     /**
      * Same logic as the method: int ancestor(int v, int w),
-     * but uses a different constructor of BreadthFirstDirectedPaths that takes Iterable as an argument
-     * instead of an int.
+     * but both searches start from all vertices of an Iterable instead of a single vertex.
      * @return a common ancestor that participates in shortest ancestral path; -1 if no such path
      */
     public int ancestor(Iterable<Integer> v, Iterable<Integer> w) {
-        if(v == null || w == null || !isArgValid(v) || !isArgValid(w)) {
+        return SAPCache.ancestor(query(v, w));
+    }
+
+    /**
+     * Same as length(Iterable v, Iterable w) for sets of vertices passed as arrays: nothing is boxed or copied.
+     * Runs in time proportional to the number of vertices and edges visited by AncestralSearch (or to the size
+     * of the labels of the sources), not to the number of vertices of the graph.
+     * Throws a java.lang.IllegalArgumentException if an array is null or holds an invalid vertex.
+     */
+    public int length(int[] v, int[] w) {
+        return SAPCache.length(query(v, w));
+    }
+
+    /**
+     * Same as ancestor(Iterable v, Iterable w) for sets of vertices passed as arrays.
+     */
+    public int ancestor(int[] v, int[] w) {
+        return SAPCache.ancestor(query(v, w));
+    }
+
+    /**
+     * Length and all tied common ancestors of shortest ancestral paths between any vertex in v and any vertex
+     * in w, found by a single search. The search stops as soon as no undiscovered vertex can be on a path
+     * as short as the best one.
+     * Throws a java.lang.IllegalArgumentException if an array is null or holds an invalid vertex.
+     */
+    public AncestralPath path(int[] v, int[] w) {
+        if (v == null || w == null || !isArgValid(v) || !isArgValid(w)) {
+            throw new IllegalArgumentException();
+        }
+        AncestralSearch search = searches.borrow(graph);
+        try {
+            if (labels != null) {
+                search.searchAll(labels, v, w);
+            } else {
+                search.searchAll(v, w);
+            }
+            return new AncestralPath(search.length(), search.ties());
+        } finally {
+            release(search);
+        }
+    }
+
+    /**
+     * @return the cache of single vertex queries; null if caching is disabled
+     */
+    public SAPCache cache() {
+        return cache;
+    }
+
+    /**
+     * @return precomputed ancestor labels with their memory footprint and build time; null if not enabled
+     */
+    public AncestorLabels ancestorLabels() {
+        return labels;
+    }
+
+    /**
+     * Reports metrics of every following length() and ancestor() query to a listener, e.g. QueryMetrics.
+     * null turns metrics off.
+     */
+    public void setListener(QueryListener listener) {
+        this.listener = listener;
+    }
+
+    CompactDigraph graph() {
+        return graph;
+    }
+
+    /**
+     * @return scratch space of queries, for the next version of this SAP
+     */
+    SearchPool searchPool() {
+        return searches;
+    }
+
+    /*
+     * helper method for length() and ancestor(). A single traversal answers both of them.
+     * Queries on single vertices and on arrays of vertices reuse pooled scratch space
+     * and don't allocate any memory. Queries on Iterables allocate only to copy their arguments.
+     * @return length and ancestor packed by SAPCache.value()
+     */
+    private long query(int v, int w) {
+        if (v < 0 || w < 0 || v > graph.V() - 1 || w > graph.V() - 1) {
             throw new IllegalArgumentException();
         }
-        BreadthFirstDirectedPaths vBreadth = new BreadthFirstDirectedPaths(graph, v);
-        BreadthFirstDirectedPaths wBreadth = new BreadthFirstDirectedPaths(graph, w);
-        return computeClosestCommonAncestor(vBreadth, wBreadth);
+        QueryListener listener = this.listener;
+        if (cache == null && listener == null) {
+            return search(v, w);
+        }
+        long start = listener == null ? 0 : System.nanoTime();
+        long key = SAPCache.key(v, w);
+        long result = cache == null ? SAPCache.MISS : cache.get(key);
+        boolean cacheHit = result != SAPCache.MISS;
+        long searchStart = listener == null ? 0 : System.nanoTime();
+        if (!cacheHit) {
+            result = search(v, w);
+            if (cache != null) {
+                cache.put(key, result);
+            }
+        }
+        if (listener != null) {
+            report(listener, 0, searchStart - start, System.nanoTime() - searchStart, cache != null, cacheHit);
+        }
+        return result;
+    }
+
+    /**
+     * Passes the timings of a query and the counts of the last search of this thread to a listener.
+     * Used by WordNet as well.
+     */
+    void report(QueryListener listener, long lookupNanos, long cacheNanos, long searchNanos, boolean cached,
+                boolean cacheHit) {
+        if (cacheHit) {
+            listener.queryCompleted(lookupNanos, cacheNanos, 0, 0, 0, true, true);
+        } else {
+            int[] counts = LAST_COUNTS.get();
+            listener.queryCompleted(lookupNanos, cacheNanos, searchNanos, counts[0], counts[1], cached, false);
+        }
+    }
+
+    /**
+     * All ancestors of a set of vertices with their distances, for batches that join each set with many others.
+     * Used by WordNet.distances().
+     * @return ancestors packed with their distances, see AncestralSearch.ancestors()
+     */
+    long[] ancestors(int[] v) {
+        if (v == null || !isArgValid(v)) {
+            throw new IllegalArgumentException();
+        }
+        AncestralSearch search = searches.borrow(graph);
+        try {
+            return search.ancestors(v);
+        } finally {
+            release(search);
+        }
+    }
+
+    /**
+     * Visits vertices in increasing order of the length of their shortest ancestral path to a set of vertices,
+     * see AncestralSearch.nearest(). Used by WordNet.nearest().
+     */
+    void nearest(int[] v, AncestralSearch.Visitor visitor) {
+        if (v == null || !isArgValid(v)) {
+            throw new IllegalArgumentException();
+        }
+        AncestralSearch search = searches.borrow(graph);
+        try {
+            search.nearest(v, reverse(), visitor);
+        } finally {
+            release(search);
+        }
     }
 
     /*
-    * helper method for an ancestor() method
-    */
-    private int computeClosestCommonAncestor(BreadthFirstDirectedPaths v, BreadthFirstDirectedPaths w) {
-        int closestCommonAncestor = -1;
-        int shortestDistance = Integer.MAX_VALUE;
-        int thisDistance;
-
-        for (int vertex = 0; vertex < graph.V(); vertex++) {
-            if (v.hasPathTo(vertex) && w.hasPathTo(vertex)) {
-                thisDistance = v.distTo(vertex) + w.distTo(vertex);
-                if(thisDistance < shortestDistance) {
-                    closestCommonAncestor = vertex;
-                    shortestDistance = thisDistance;
-                }
+     * graph with reversed edges, built once. A race between two threads only builds equal graphs twice.
+     */
+    CompactDigraph reverse() {
+        CompactDigraph reversed = reverse;
+        if (reversed == null) {
+            reversed = graph.reverse();
+            reverse = reversed;
+        }
+        return reversed;
+    }
+
+    /**
+     * @return graph with reversed edges if it was built already; null otherwise
+     */
+    CompactDigraph builtReverse() {
+        return reverse;
+    }
+
+    /**
+     * Same as query(int v, int w) for sets of vertices already stored in arrays, without a cache. Used by WordNet,
+     * which caches results by its own keys, and by length(int[], int[]) and ancestor(int[], int[]).
+     */
+    long query(int[] v, int[] w) {
+        if (v == null || w == null || !isArgValid(v) || !isArgValid(w)) {
+            throw new IllegalArgumentException();
+        }
+        AncestralSearch search = searches.borrow(graph);
+        try {
+            if (labels != null) {
+                search.search(labels, v, w);
+            } else {
+                search.search(v, w);
+            }
+            return SAPCache.value(search.length(), search.ancestor());
+        } finally {
+            release(search);
+        }
+    }
+
+    private long query(Iterable<Integer> v, Iterable<Integer> w) {
+        if (v == null || w == null) {
+            throw new IllegalArgumentException();
+        }
+        QueryListener listener = this.listener;
+        if (listener == null) {
+            return query(toVertices(v), toVertices(w));
+        }
+        long start = System.nanoTime();
+        int[] vVertices = toVertices(v);
+        int[] wVertices = toVertices(w);
+        long searchStart = System.nanoTime();
+        long result = query(vVertices, wVertices);
+        report(listener, searchStart - start, 0, System.nanoTime() - searchStart, false, false);
+        return result;
+    }
+
+    private long search(int v, int w) {
+        AncestralSearch search = searches.borrow(graph);
+        try {
+            if (labels != null) {
+                search.search(labels, v, w);
+            } else {
+                search.search(v, w);
             }
+            return SAPCache.value(search.length(), search.ancestor());
+        } finally {
+            release(search);
         }
-        return closestCommonAncestor;
     }
 
+    /*
+     * records the visited counts of a search for report() and returns it to the pool
+     */
+    private void release(AncestralSearch search) {
+        int[] counts = LAST_COUNTS.get();
+        counts[0] = search.verticesVisited();
+        counts[1] = search.edgesVisited();
+        searches.release(search);
+    }
 
     /*
      * check if any argument vertex is invalid—not between 0 and G.V() - 1
      */
-    private boolean isArgValid(Iterable<Integer> vertices) {
+    private boolean isArgValid(int[] vertices) {
         for (int vertex : vertices) {
-            if(vertex < 0 || vertex > graph.V() - 1) {
+            if (vertex < 0 || vertex > graph.V() - 1) {
                 return false;
             }
         }
         return true;
     }
 
+    /*
+     * copy argument vertices into an array.
+     * check if any argument vertex is null; the range is checked by isArgValid().
+     */
+    private int[] toVertices(Iterable<Integer> vertices) {
+        int[] array = new int[16];
+        int n = 0;
+        for (Integer vertex : vertices) {
+            if (vertex == null) {
+                throw new IllegalArgumentException();
+            }
+            if (n == array.length) {
+                array = Arrays.copyOf(array, 2 * n);
+            }
+            array[n++] = vertex;
+        }
+        return Arrays.copyOf(array, n);
+    }
+
     /**
      * Test client.
      * The following test client takes the name of a digraph input file as as a command-line argument,
@@ -0,0 +1,283 @@
+package WordNet;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Size-bounded, thread-safe cache of shortest ancestral path results with approximately LRU eviction.
+ *
+ * A key is an unordered pair of ints (two vertices of SAP or two synset sets of WordNet), so (a, b) and (b, a)
+ * share an entry. A value stores length and ancestor together, so length() and ancestor() (distance() and sap())
+ * are answered by the same entry.
+ * Entries are spread over independently locked segments, so concurrent queries don't contend on a single lock.
+ * A segment is an open-addressing hash table of primitive long keys and values, so get() and put() don't allocate
+ * and queries stay allocation-free with the cache on. It evicts by CLOCK, an approximation of LRU: a full segment
+ * sweeps its entries, giving every entry used since the last sweep a second chance, and evicts the first one
+ * that wasn't used.
+ * SAP is immutable, so its entries never have to be invalidated. WordNet updates that change the digraph replace
+ * the cache with a copy without the affected entries.
+ */
+
+public class SAPCache {
+
+    static final long MISS = Long.MIN_VALUE; // never produced by value(): length is at least -1
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    /**
+     * @param capacity maximum number of cached pairs, at least 1
+     */
+    SAPCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        int segmentsCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(capacity)); // a power of 2
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.capacity = capacity;
+        this.segments = new Segment[segmentsCount];
+        for (int i = 0; i < segmentsCount; i++) {
+            // split the capacity between segments, the first ones take the remainder
+            segments[i] = new Segment(capacity / segmentsCount + (i < capacity % segmentsCount ? 1 : 0));
+        }
+    }
+
+    /**
+     * Copy-on-write step of WordNet updates: a cache of the same capacity that keeps all entries of previous
+     * except the invalid ones, in the order of the clock sweep. Counters continue those of previous.
+     * Queries still running on previous can't put results computed on an outdated graph into the copy.
+     */
+    SAPCache(SAPCache previous, LongPredicate invalid) {
+        this.capacity = previous.capacity;
+        this.hits = previous.hits;
+        this.misses = previous.misses;
+        this.evictions = previous.evictions;
+        this.segments = new Segment[previous.segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            Segment previousSegment = previous.segments[i];
+            segments[i] = new Segment(previousSegment.keys.length);
+            synchronized (previousSegment) {
+                for (int j = 0; j < previousSegment.size; j++) {
+                    int slot = (previousSegment.hand + j) % previousSegment.size;
+                    if (!invalid.test(previousSegment.keys[slot])) {
+                        segments[i].put(previousSegment.keys[slot], previousSegment.values[slot]);
+                        segments[i].used[segments[i].size - 1] = previousSegment.used[slot];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Entries are stored in slots of parallel arrays. A hash table with linear probing maps keys to their slots.
+     * Keys are never negative (see key()), so a table entry is a slot + 1, and 0 is free.
+     * Not thread safe: SAPCache locks a segment around every call.
+     */
+    private final class Segment {
+        private final long[] keys;
+        private final long[] values;
+        private final boolean[] used; // the entry was used since the clock hand last passed it
+        private final int[] table;
+        private final int mask;
+        private int size; // slots 0 to size - 1 hold entries
+        private int hand; // next slot swept by the clock
+
+        private Segment(int segmentCapacity) {
+            keys = new long[segmentCapacity];
+            values = new long[segmentCapacity];
+            used = new boolean[segmentCapacity];
+            table = new int[Integer.highestOneBit(segmentCapacity) << 2]; // at most half full
+            mask = table.length - 1;
+        }
+
+        private int home(long key) {
+            long h = key * 0xC2B2AE3D27D4EB4FL; // independent of the bits that chose the segment
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        /**
+         * @return position of key in table; -(free position) - 1 if key is not there
+         */
+        private int find(long key) {
+            for (int i = home(key); ; i = (i + 1) & mask) {
+                int entry = table[i];
+                if (entry == 0) {
+                    return -i - 1;
+                }
+                if (keys[entry - 1] == key) {
+                    return i;
+                }
+            }
+        }
+
+        private long get(long key) {
+            int i = find(key);
+            if (i < 0) {
+                return MISS;
+            }
+            int slot = table[i] - 1;
+            used[slot] = true;
+            return values[slot];
+        }
+
+        private void put(long key, long value) {
+            int i = find(key);
+            int slot;
+            if (i >= 0) {
+                slot = table[i] - 1;
+            } else {
+                if (size < keys.length) {
+                    slot = size++;
+                } else {
+                    slot = evict();
+                    i = find(key); // eviction may have moved the free position
+                }
+                keys[slot] = key;
+                table[-i - 1] = slot + 1;
+            }
+            values[slot] = value;
+            used[slot] = true;
+        }
+
+        /**
+         * Sweeps the clock hand to the first entry not used since its last pass and removes it from the table.
+         * @return the freed slot
+         */
+        private int evict() {
+            while (used[hand]) {
+                used[hand] = false;
+                hand = (hand + 1) % keys.length;
+            }
+            int slot = hand;
+            hand = (hand + 1) % keys.length;
+            remove(find(keys[slot]));
+            evictions.increment();
+            return slot;
+        }
+
+        /*
+         * backward shift deletion: moves later entries of the probe sequence into the gap, so lookups never
+         * stop at a hole in front of their key
+         */
+        private void remove(int i) {
+            int gap = i;
+            for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+                int home = home(keys[table[j] - 1]);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    table[gap] = table[j];
+                    gap = j;
+                }
+            }
+            table[gap] = 0;
+        }
+    }
+
+    /**
+     * @return key of an unordered pair (a, b)
+     */
+    static long key(int a, int b) {
+        int min = Math.min(a, b);
+        int max = Math.max(a, b);
+        return ((long) min << 32) | (max & 0xffffffffL);
+    }
+
+    /**
+     * @return length and ancestor packed into a single value
+     */
+    static long value(int length, int ancestor) {
+        return ((long) length << 32) | (ancestor & 0xffffffffL);
+    }
+
+    static int length(long value) {
+        return (int) (value >> 32);
+    }
+
+    // first int of a pair
+    static int first(long key) {
+        return (int) (key >>> 32);
+    }
+
+    // second int of a pair
+    static int second(long key) {
+        return (int) key;
+    }
+
+    static int ancestor(long value) {
+        return (int) value;
+    }
+
+    private Segment segmentFor(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; // spread pairs that differ only in low bits over all segments
+        return segments[(int) (h >>> 32) & (segments.length - 1)];
+    }
+
+    /**
+     * @return cached value of a pair; MISS if the pair is not cached
+     */
+    long get(long key) {
+        Segment segment = segmentFor(key);
+        long value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value == MISS) {
+            misses.increment();
+            return MISS;
+        }
+        hits.increment();
+        return value;
+    }
+
+    void put(long key, long value) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    // maximum number of cached pairs
+    public int capacity() {
+        return capacity;
+    }
+
+    // number of currently cached pairs
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    // number of lookups answered by the cache
+    public long hits() {
+        return hits.sum();
+    }
+
+    // number of lookups that required a search
+    public long misses() {
+        return misses.sum();
+    }
+
+    // number of entries evicted to keep the cache within its capacity
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SAPCache: size = %d/%d, hits = %d, misses = %d, evictions = %d",
+                size(), capacity, hits(), misses(), evictions());
+    }
+}
@@ -0,0 +1,70 @@
+package WordNet;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Bounded pool of AncestralSearch scratch space, shared by a SAP and the versions that WordNet derives from it.
+ *
+ * A query borrows a search, binds it to its graph and returns it when it is done. So scratch space is allocated for
+ * the queries that run at the same time, at most one search of about V vertices per processor kept idle, instead of
+ * one per thread that ever queried. Searches are allocated with some headroom over V, so a new version whose graph
+ * is unchanged or grew a little reuses them. A search that is too small, or more than twice as large as needed,
+ * is dropped and allocated again.
+ *
+ * Idle searches sit in a fixed array of slots taken and filled by compare-and-set: lock-free and, unlike a queue,
+ * free of allocation, so borrowing keeps queries allocation-free. When all slots are full a returned search is
+ * left to GC; when all are empty a new one is allocated. Idle searches are unbound and don't keep a graph reachable.
+ */
+
+class SearchPool {
+
+    private static final int MIN_HEADROOM = 64;
+
+    private final AtomicReferenceArray<AncestralSearch> idle;
+
+    SearchPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param capacity: number of idle searches kept
+     */
+    SearchPool(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException();
+        idle = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * @return a search bound to graph, to be released after its results are read
+     */
+    AncestralSearch borrow(CompactDigraph graph) {
+        int V = graph.V();
+        int slots = idle.length();
+        int start = (int) (Thread.currentThread().getId() % slots); // spread threads over the slots
+        for (int i = 0; i < slots; i++) {
+            int slot = (start + i) % slots;
+            AncestralSearch search = idle.get(slot);
+            if (search != null && idle.compareAndSet(slot, search, null)
+                    && search.capacity() >= V && search.capacity() <= 2 * V + MIN_HEADROOM) {
+                search.bind(graph);
+                return search;
+            }
+        }
+        AncestralSearch search = new AncestralSearch(V + V / 16 + MIN_HEADROOM);
+        search.bind(graph);
+        return search;
+    }
+
+    void release(AncestralSearch search) {
+        search.unbind();
+        int slots = idle.length();
+        int start = (int) (Thread.currentThread().getId() % slots);
+        for (int i = 0; i < slots; i++) {
+            if (idle.compareAndSet((start + i) % slots, null, search)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package WordNet;
+
+import java.util.Arrays;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Immutable nouns of every synset, stored as noun ids of a NounIndex.
+ *
+ * Ids of the nouns of synset s are nounIds[offsets[s]] ... nounIds[offsets[s + 1] - 1], in the order of
+ * synsets.txt. Two int arrays for the whole WordNet, instead of an array of Strings per synset.
+ * A synset id missing from synsets.txt has no nouns.
+ * The space-separated nouns of a synset, as sap() returns them, are joined the first time they are asked for
+ * and kept, so later calls return the same String without allocating.
+ */
+
+class SynsetNouns {
+
+    private final int[] offsets; // length V + 1
+    private final int[] nounIds;
+    private final String[] joined; // filled lazily by joined()
+
+    SynsetNouns(int[] offsets, int[] nounIds) {
+        this(offsets, nounIds, new String[offsets.length - 1]);
+    }
+
+    private SynsetNouns(int[] offsets, int[] nounIds, String[] joined) {
+        this.offsets = offsets;
+        this.nounIds = nounIds;
+        this.joined = joined;
+    }
+
+    // number of synsets
+    int V() {
+        return offsets.length - 1;
+    }
+
+    int size(int synset) {
+        return offsets[synset + 1] - offsets[synset];
+    }
+
+    // id of the i-th noun of a synset
+    int nounId(int synset, int i) {
+        return nounIds[offsets[synset] + i];
+    }
+
+    /**
+     * Threads may race to join the same synset: each writes an equal String, which is immutable and so safely
+     * published without a lock.
+     * @return nouns of a synset separated by spaces
+     */
+    String joined(int synset, NounIndex nounIndex) {
+        String nouns = joined[synset];
+        if (nouns == null) {
+            int size = size(synset);
+            if (size == 1) {
+                nouns = nounIndex.noun(nounId(synset, 0));
+            } else {
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        builder.append(' ');
+                    }
+                    builder.append(nounIndex.noun(nounId(synset, i)));
+                }
+                nouns = builder.toString();
+            }
+            joined[synset] = nouns;
+        }
+        return nouns;
+    }
+
+    boolean contains(int synset, int nounId) {
+        for (int i = offsets[synset]; i < offsets[synset + 1]; i++) {
+            if (nounIds[i] == nounId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return copy with one more synset that has the given nouns
+     */
+    SynsetNouns withSynset(int[] synsetNounIds) {
+        int V = V();
+        int[] newOffsets = Arrays.copyOf(offsets, V + 2);
+        newOffsets[V + 1] = offsets[V] + synsetNounIds.length;
+        int[] newNounIds = Arrays.copyOf(nounIds, newOffsets[V + 1]);
+        System.arraycopy(synsetNounIds, 0, newNounIds, offsets[V], synsetNounIds.length);
+        return new SynsetNouns(newOffsets, newNounIds, Arrays.copyOf(joined, V + 1));
+    }
+
+    /**
+     * @return copy where a noun is appended to the nouns of a synset
+     */
+    SynsetNouns withNoun(int synset, int nounId) {
+        int end = offsets[synset + 1];
+        int[] newOffsets = offsets.clone();
+        for (int s = synset + 1; s < newOffsets.length; s++) {
+            newOffsets[s]++;
+        }
+        int[] newNounIds = new int[nounIds.length + 1];
+        System.arraycopy(nounIds, 0, newNounIds, 0, end);
+        newNounIds[end] = nounId;
+        System.arraycopy(nounIds, end, newNounIds, end + 1, nounIds.length - end);
+        String[] newJoined = joined.clone();
+        newJoined[synset] = null;
+        return new SynsetNouns(newOffsets, newNounIds, newJoined);
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] nounIds() {
+        return nounIds;
+    }
+}
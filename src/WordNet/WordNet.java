@@ -1,32 +1,51 @@
 package WordNet;
 
-import edu.princeton.cs.algs4.Digraph;
-import edu.princeton.cs.algs4.DirectedCycle;
-
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Algorithms Part II by Princeton University
  * Programming assignment 1. WordNet.
  * Petro Karabyn.
  * 21-Aug-2017.
+ *
+ * Thread safety: one instance can be shared by any number of threads, queries don't take any global lock (see SAP).
+ * Batches of pairs can be spread over a ForkJoinPool
+ * by distances(String[], String[], ForkJoinPool) and saps(String[], String[], ForkJoinPool).
+ *
+ * Updates: addSynset(), addNoun() and addHypernym() change the WordNet in place, without rebuilding it from files.
+ * All state lives in an immutable Version. An update builds the next Version from the current one, sharing
+ * everything it doesn't change, and publishes it with a single volatile write. Updates are serialized,
+ * queries never wait for them: every query reads the current Version once, so it sees the WordNet either before
+ * or after an update, never a mix of both.
  */
 
 public class WordNet {
 
-    private final Map<Integer, List<String>> synsetsMap; // store synsetID : {nouns}.
-    private final Map<Integer, List<Integer>> hypernymsMap; // store hypernym relations to construct a graph
-    private final Set<String> nounsSet; // store nouns. HashSet will provide add(), contains() and size() operations
-    // with O(1) complexity and won't allow any duplicates.
+    private volatile Version version; // replaced as a whole by every update
+    private volatile QueryListener listener; // receives metrics of every query; null if metrics are off
 
-    private final SAP sap;
+    /**
+     * Immutable state of a WordNet.
+     */
+    private static class Version {
+        private final SynsetNouns synsetNouns; // store synsetID : {noun ids}.
+        private final NounIndex nounIndex; // store noun : noun id : synset set id. Inverted index over synsetNouns.
+        // a hash table over a byte pool provides id() with O(1) complexity.
+        private final int[][] synsetSets; // store synset set id : {synsetIDs}. Nouns with equal synsets share a set.
+
+        private final SAP sap;
+        private final SAPCache cache; // results of queries by pairs of synset sets; null if caching is disabled
+
+        private Version(SynsetNouns synsetNouns, NounIndex nounIndex, int[][] synsetSets, SAP sap, SAPCache cache) {
+            this.synsetNouns = synsetNouns;
+            this.nounIndex = nounIndex;
+            this.synsetSets = synsetSets;
+            this.sap = sap;
+            this.cache = cache;
+        }
+    }
 
     /**
      * constructor takes the name of the two input files
@@ -37,88 +56,151 @@ public class WordNet {
      * (Directed Acyclic Graph)
      */
     public WordNet(String synsets, String hypernyms) {
-        if (synsets == null || hypernyms == null) {
+        this(synsets, hypernyms, 0);
+    }
+
+    /**
+     * Same as WordNet(String synsets, String hypernyms), but keeps results of up to cacheCapacity most recently
+     * queried pairs of synset sets. distance() and sap() share cached results.
+     * Caching is disabled if cacheCapacity is 0.
+     */
+    public WordNet(String synsets, String hypernyms, int cacheCapacity) {
+        this(synsets, hypernyms, cacheCapacity, false);
+    }
+
+    /**
+     * Same as WordNet(String synsets, String hypernyms, int cacheCapacity).
+     * If ancestorLabels is true, SAP precomputes AncestorLabels of all synsets, so queries merge-join labels
+     * instead of traversing the graph.
+     * Files are streamed once by WordNetParser straight into a CompactDigraph, which SAP uses without a copy.
+     */
+    public WordNet(String synsets, String hypernyms, int cacheCapacity, boolean ancestorLabels) {
+        if (synsets == null || hypernyms == null || cacheCapacity < 0) {
             throw new IllegalArgumentException();
         }
 
-        this.synsetsMap = new HashMap<>();
-        this.hypernymsMap = new HashMap<>();
-        this.nounsSet = new HashSet<>();
+        String[][] parsedSynsets = WordNetParser.parseSynsets(synsets);
+        Map<String, int[]> nounSynsets = indexNouns(parsedSynsets);
+        int[] nounSetIds = new int[nounSynsets.size()];
+        int[][] synsetSets = internSynsetSets(parsedSynsets.length, nounSynsets, nounSetIds);
+        NounIndex nounIndex = NounIndex.of(nounSynsets.keySet().toArray(new String[nounSynsets.size()]), nounSetIds);
+        SynsetNouns synsetNouns = toNounIds(parsedSynsets, nounIndex);
 
-        parseSynsets(synsets);
-        parseHypernyms(hypernyms);
-
-        Digraph wordNetDigraph = new Digraph(synsetsMap.size());
-        constructGraph(wordNetDigraph);
+        CompactDigraph wordNetDigraph = WordNetParser.parseHypernyms(hypernyms, parsedSynsets.length);
         // check if the graph is a rooted DAG
-        if (new DirectedCycle(wordNetDigraph).hasCycle() || !isRootedDAG(wordNetDigraph)){
+        if (wordNetDigraph.hasCycle() || !isRootedDAG(wordNetDigraph)){
             throw new IllegalArgumentException();
         }
 
+        this.version = new Version(synsetNouns, nounIndex, synsetSets,
+                new SAP(wordNetDigraph, 0, ancestorLabels), cacheCapacity > 0 ? new SAPCache(cacheCapacity) : null);
+    }
 
-        this.sap = new SAP(wordNetDigraph);
-
+    /**
+     * Assembles a WordNet from data that was validated before. Used by WordNetSnapshot.
+     */
+    WordNet(SynsetNouns synsetNouns, NounIndex nounIndex, int[][] synsetSets, SAP sap, int cacheCapacity) {
+        if (cacheCapacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.version = new Version(synsetNouns, nounIndex, synsetSets, sap,
+                cacheCapacity > 0 ? new SAPCache(cacheCapacity) : null);
     }
 
-    private void parseSynsets(String synsets) {
-        // read file
-        Path file = Paths.get(synsets);
-        List<String> nounEntries;
-        try {
-            Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8);
-            for (String l : (Iterable<String>) lines::iterator) {
-                // parse lines
-                String[] line = l.split(","); // split into line[0] = ids; line[1] = synsets; line[2] = gloss.
-                // Case 1: more than 1 noun in a synset
-                // call split() on a string of synsets only when it contains more than 1 noun.
-                if (line[1].contains(" ")) {
-                    nounEntries =  Arrays.asList(line[1].split(" "));
-                    synsetsMap.put(Integer.parseInt(line[0]), nounEntries);
-                    nounEntries.forEach(nounsSet::add);
-                }
-                // Case 2: only 1 noun in a synset.
-                else {
-                    synsetsMap.put(Integer.parseInt(line[0]), Arrays.asList(line[1]));
-                    nounsSet.add(line[1]);
-                }
+    /**
+     * Collects ids of all synsets of each noun.
+     * @return map noun : {synsetIDs}, nouns in the order of their first synset
+     */
+    private static Map<String, int[]> indexNouns(String[][] synsetNouns) {
+        Map<String, int[]> nounSynsets = new LinkedHashMap<>();
+        for (int synsetId = 0; synsetId < synsetNouns.length; synsetId++) {
+            String[] nouns = synsetNouns[synsetId];
+            if (nouns == null) {
+                continue; // id missing from synsets.txt
+            }
+            for (String noun : nouns) {
+                indexNoun(nounSynsets, noun, synsetId);
             }
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
         }
-        // System.out.println(synsetsMap.toString());
+        return nounSynsets;
     }
 
-    private void parseHypernyms(String hypernyms) {
-        // read file
-        Path file = Paths.get(hypernyms);
-        try {
-            Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8);
-            for (String l : (Iterable<String>) lines::iterator) {
-                // parse lines
-                String[] line = l.split(",");
-                List<Integer> ancestors = new ArrayList<>();
-                for (int i = 1; i < line.length; i++) {
-                    ancestors.add(Integer.parseInt(line[i]));
+    /**
+     * Helper method for indexNouns().
+     * Appends a synset id to the ids of a noun.
+     * Most nouns occur in 1 or 2 synsets, so the array is grown by one entry at a time.
+     */
+    private static void indexNoun(Map<String, int[]> nounSynsets, String noun, int synsetId) {
+        int[] ids = nounSynsets.get(noun);
+        if (ids == null) {
+            nounSynsets.put(noun, new int[] {synsetId});
+        } else {
+            int[] grownIds = Arrays.copyOf(ids, ids.length + 1);
+            grownIds[ids.length] = synsetId;
+            nounSynsets.put(noun, grownIds);
+        }
+    }
+
+    /**
+     * Fills the synset set ids of the nouns, in the order of nounSynsets. Nouns that occur in exactly the same
+     * synsets (e.g. all nouns of a single synset) get the same synset set id, so their queries share cache entries.
+     * @return synset sets indexed by their ids
+     */
+    private static int[][] internSynsetSets(int V, Map<String, int[]> nounSynsets, int[] nounSetIds) {
+        int[] singletonSetIds = new int[V]; // most nouns occur in a single synset
+        Arrays.fill(singletonSetIds, -1);
+        Map<List<Integer>, Integer> setIds = new HashMap<>();
+        List<int[]> sets = new ArrayList<>();
+        int nounId = 0;
+        for (int[] ids : nounSynsets.values()) {
+            int setId;
+            if (ids.length == 1) {
+                setId = singletonSetIds[ids[0]];
+                if (setId == -1) {
+                    setId = sets.size();
+                    singletonSetIds[ids[0]] = setId;
+                    sets.add(ids);
+                }
+            } else {
+                Arrays.sort(ids);
+                List<Integer> key = new ArrayList<>(ids.length);
+                for (int id : ids) {
+                    key.add(id);
+                }
+                Integer multipleSetId = setIds.get(key);
+                if (multipleSetId == null) {
+                    multipleSetId = sets.size();
+                    setIds.put(key, multipleSetId);
+                    sets.add(ids);
                 }
-                hypernymsMap.put(Integer.parseInt(line[0]), ancestors); // add hypernym relations to a data structure.
+                setId = multipleSetId;
             }
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
+            nounSetIds[nounId++] = setId;
         }
+        return sets.toArray(new int[sets.size()][]);
     }
 
-    private void constructGraph(Digraph wordNetDigraph) {
-        for (Map.Entry<Integer, List<Integer>> entry : hypernymsMap.entrySet()) {
-            int key = entry.getKey();
-            entry.getValue().forEach(hypernymId -> wordNetDigraph.addEdge(key, hypernymId));
+    /**
+     * Replaces the nouns of every synset by their ids.
+     */
+    private static SynsetNouns toNounIds(String[][] parsedSynsets, NounIndex nounIndex) {
+        int[] offsets = new int[parsedSynsets.length + 1];
+        for (int s = 0; s < parsedSynsets.length; s++) {
+            offsets[s + 1] = offsets[s] + (parsedSynsets[s] == null ? 0 : parsedSynsets[s].length);
         }
-        // System.out.println(wordNetDigraph.toString());
+        int[] nounIds = new int[offsets[parsedSynsets.length]];
+        for (int s = 0; s < parsedSynsets.length; s++) {
+            for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+                nounIds[i] = nounIndex.id(parsedSynsets[s][i - offsets[s]]);
+            }
+        }
+        return new SynsetNouns(offsets, nounIds);
     }
 
-    private boolean isRootedDAG(Digraph wordNetDigraph) {
+    private static boolean isRootedDAG(CompactDigraph wordNetDigraph) {
         int roots = 0;
         for (int i = 0; i < wordNetDigraph.V(); i++) {
-            if (!wordNetDigraph.adj(i).iterator().hasNext()) {
+            if (wordNetDigraph.outdegree(i) == 0) {
                 roots++;
             }
             if (roots > 1) {
@@ -130,7 +212,7 @@ public class WordNet {
 
     // returns all WornNet nouns
     public Iterable<String> nouns() {
-        return nounsSet;
+        return version.nounIndex.nouns();
     }
 
     // is the word a WordNet noun?
@@ -138,12 +220,13 @@ public class WordNet {
         if (word == null) {
             throw new IllegalArgumentException();
         }
-        return nounsSet.contains(word);
+        return version.nounIndex.contains(word);
     }
 
     /**
     * runs in time linear in the size of the WordNet digraph
     * 0(n)
+    * The synset string is built once per synset and shared by all later calls.
     * @param nounA searched noun in a WordNet
     * @param nounB searched noun in a WordNet
     * @return a synset (second field of synsets.txt) that is the common ancestor of nounA and nounB
@@ -153,18 +236,39 @@ public class WordNet {
         if (!isNoun(nounA) || !isNoun(nounB)) {
             throw new IllegalArgumentException();
         }
+        return sap(version, nounA, nounB);
+    }
+
+    /*
+     * sap() of the nouns in a version
+     */
+    private String sap(Version current, String nounA, String nounB) {
         //System.out.println("sap() call. " + "arguments: " + nounA + ", " + nounB);
-        ArrayList<ArrayList<Integer>> ids = getNounIds(nounA, nounB);
-        List<String> synset = synsetsMap.get(sap.ancestor(ids.get(0), ids.get(1)));
-        String ancestor = "";
-        if(synset.size() == 1) {
-            ancestor = synset.get(0);
+        int synset = SAPCache.ancestor(query(current, nounA, nounB));
+        return current.synsetNouns.joined(synset, current.nounIndex);
+    }
+
+    /**
+     * Same as sap(), for callers that don't need the text: nothing is decoded or joined.
+     * @return id (first field of synsets.txt) of the common ancestor of nounA and nounB in a shortest ancestral path
+     */
+    public int sapId(String nounA, String nounB) {
+        if (!isNoun(nounA) || !isNoun(nounB)) {
+            throw new IllegalArgumentException();
         }
-        else {
-            for (String aSynset : synset) ancestor += aSynset + " ";
-            ancestor = ancestor.substring(0, ancestor.length() - 1);
+        return SAPCache.ancestor(query(version, nounA, nounB));
+    }
+
+    /**
+     * @return nouns of a synset separated by spaces, as sap() returns them
+     * Throws a java.lang.IllegalArgumentException if id is not a synset id.
+     */
+    public String synset(int id) {
+        Version current = version;
+        if (id < 0 || id >= current.synsetNouns.V()) {
+            throw new IllegalArgumentException();
         }
-        return ancestor;
+        return current.synsetNouns.joined(id, current.nounIndex);
     }
 
     // distance between nounA and nounB
@@ -172,37 +276,374 @@ public class WordNet {
         if (!isNoun(nounA) || !isNoun(nounB)) {
             throw new IllegalArgumentException();
         }
-        ArrayList<ArrayList<Integer>> ids = getNounIds(nounA, nounB);
-        return sap.length(ids.get(0), ids.get(1));
+        return SAPCache.length(query(version, nounA, nounB));
+    }
+
+    /**
+     * Adds a new synset with the given nouns as a hyponym of the given synsets.
+     * Runs in time linear in the size of the WordNet digraph: arrays are copied, nothing is parsed or validated
+     * again. Results cached before stay valid, since a new synset is on no path between existing synsets.
+     * Throws a java.lang.IllegalArgumentException if a noun is null, empty or contains a space or a comma,
+     * if there are no hypernyms (the synset would be a second root) or a hypernym is not a synset.
+     * @return id of the new synset
+     */
+    public synchronized int addSynset(String[] nouns, int[] hypernyms) {
+        Version current = version;
+        int V = current.synsetNouns.V();
+        if (nouns == null || nouns.length == 0 || hypernyms == null || hypernyms.length == 0) {
+            throw new IllegalArgumentException();
+        }
+        for (String noun : nouns) {
+            checkNewNoun(noun);
+        }
+        for (int hypernym : hypernyms) {
+            if (hypernym < 0 || hypernym >= V) {
+                throw new IllegalArgumentException();
+            }
+        }
+        Set<String> distinctNouns = new LinkedHashSet<>(Arrays.asList(nouns));
+        String[] synset = distinctNouns.toArray(new String[distinctNouns.size()]);
+        int[] heads = IntStream.of(hypernyms).distinct().toArray();
+        int[] tails = new int[heads.length];
+        Arrays.fill(tails, V);
+
+        CompactDigraph graph = current.sap.graph().withEdges(V + 1, tails, heads, heads.length);
+        AncestorLabels labels = current.sap.ancestorLabels() == null ? null
+                : new AncestorLabels(graph, current.sap.ancestorLabels(), new boolean[V + 1]);
+        CompactDigraph reverse = current.sap.builtReverse();
+        if (reverse != null) {
+            reverse = reverse.withEdges(V + 1, heads, tails, heads.length);
+        }
+        version = withNouns(current, synset, V, new SAP(graph, 0, labels, current.sap.searchPool(), reverse));
+        return V;
+    }
+
+    /**
+     * Adds a noun to an existing synset.
+     * Runs in time proportional to the number of synsets of the noun. Results cached before stay valid.
+     * Throws a java.lang.IllegalArgumentException if synset is not a synset id or if the noun is null, empty
+     * or contains a space or a comma.
+     */
+    public synchronized void addNoun(int synset, String noun) {
+        Version current = version;
+        checkNewNoun(noun);
+        if (synset < 0 || synset >= current.synsetNouns.V()) {
+            throw new IllegalArgumentException();
+        }
+        int nounId = current.nounIndex.id(noun);
+        if (nounId != -1 && current.synsetNouns.contains(synset, nounId)) {
+            return;
+        }
+        version = withNouns(current, new String[] {noun}, synset, current.sap);
+    }
+
+    /**
+     * Adds an edge synset -> hypernym to the WordNet digraph.
+     * Runs in time linear in the size of the WordNet digraph. Only the descendants of synset get new ancestors,
+     * so only their AncestorLabels are computed again and only cached pairs that involve them are invalidated.
+     * The reverse graph that finds them is built by the first update or nearest() call, then copied with the new
+     * edge by every update, so it is never built again.
+     * Throws a java.lang.IllegalArgumentException if synset or hypernym is not a synset id,
+     * or if the edge would create a cycle.
+     */
+    public synchronized void addHypernym(int synset, int hypernym) {
+        Version current = version;
+        CompactDigraph graph = current.sap.graph();
+        int V = graph.V();
+        if (synset < 0 || synset >= V || hypernym < 0 || hypernym >= V || synset == hypernym) {
+            throw new IllegalArgumentException();
+        }
+        if (graph.hasEdge(synset, hypernym)) {
+            return;
+        }
+        for (int ancestor : graph.reachableFrom(hypernym)) {
+            if (ancestor == synset) {
+                throw new IllegalArgumentException("cycle " + synset + " -> " + hypernym);
+            }
+        }
+
+        // the reverse graph is built once and then kept up to date along with the graph
+        CompactDigraph reverse = current.sap.reverse();
+        boolean[] affected = new boolean[V];
+        for (int descendant : reverse.reachableFrom(synset)) {
+            affected[descendant] = true;
+        }
+        CompactDigraph newGraph = graph.withEdges(V, new int[] {synset}, new int[] {hypernym}, 1);
+        CompactDigraph newReverse = reverse.withEdges(V, new int[] {hypernym}, new int[] {synset}, 1);
+        AncestorLabels labels = current.sap.ancestorLabels() == null ? null
+                : new AncestorLabels(newGraph, current.sap.ancestorLabels(), affected);
+        SAPCache cache = null;
+        if (current.cache != null) {
+            int[][] synsetSets = current.synsetSets;
+            cache = new SAPCache(current.cache, key -> isAffected(synsetSets[SAPCache.first(key)], affected)
+                    || isAffected(synsetSets[SAPCache.second(key)], affected));
+        }
+        version = new Version(current.synsetNouns, current.nounIndex, current.synsetSets,
+                new SAP(newGraph, 0, labels, current.sap.searchPool(), newReverse), cache);
+    }
+
+    /*
+     * next version where nouns were added to a synset, or to a new synset if synset is the next synset id:
+     * every noun moves to the synset set of its old synsets plus the new one.
+     * Nouns that shared a synset set before share the new one too.
+     */
+    private static Version withNouns(Version current, String[] addedNouns, int synset, SAP sap) {
+        List<int[]> newSets = new ArrayList<>();
+        Map<Integer, Integer> movedSetIds = new HashMap<>(); // old set id : new set id; -1 for new nouns
+        Map<String, Integer> changes = new HashMap<>();
+        for (String noun : addedNouns) {
+            int oldSetId = current.nounIndex.setId(noun);
+            Integer setId = movedSetIds.get(oldSetId);
+            if (setId == null) {
+                int[] oldSet = oldSetId == -1 ? new int[0] : current.synsetSets[oldSetId];
+                int[] set = Arrays.copyOf(oldSet, oldSet.length + 1);
+                set[oldSet.length] = synset;
+                Arrays.sort(set);
+                setId = current.synsetSets.length + newSets.size();
+                newSets.add(set);
+                movedSetIds.put(oldSetId, setId);
+            }
+            changes.put(noun, setId);
+        }
+        int[][] synsetSets = Arrays.copyOf(current.synsetSets, current.synsetSets.length + newSets.size());
+        for (int i = 0; i < newSets.size(); i++) {
+            synsetSets[current.synsetSets.length + i] = newSets.get(i);
+        }
+        NounIndex nounIndex = current.nounIndex.with(changes);
+        int[] nounIds = new int[addedNouns.length];
+        for (int i = 0; i < nounIds.length; i++) {
+            nounIds[i] = nounIndex.id(addedNouns[i]);
+        }
+        SynsetNouns synsetNouns = synset == current.synsetNouns.V() ? current.synsetNouns.withSynset(nounIds)
+                : current.synsetNouns.withNoun(synset, nounIds[0]);
+        return new Version(synsetNouns, nounIndex, synsetSets, sap, current.cache);
+    }
+
+    private static boolean isAffected(int[] synsets, boolean[] affected) {
+        for (int synset : synsets) {
+            if (affected[synset]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * nouns are written space-separated in a comma-separated line of synsets.txt
+     */
+    private static void checkNewNoun(String noun) {
+        if (noun == null || noun.isEmpty() || noun.indexOf(' ') != -1 || noun.indexOf(',') != -1) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    SynsetNouns synsetNouns() {
+        return version.synsetNouns;
+    }
+
+    NounIndex nounIndex() {
+        return version.nounIndex;
+    }
+
+    int[][] synsetSets() {
+        return version.synsetSets;
+    }
+
+    SAP sapEngine() {
+        return version.sap;
+    }
+
+    /**
+     * k nouns nearest to a noun by SAP distance, the noun itself excluded. Ties are broken arbitrarily.
+     * Walks up to the ancestors of the noun and back down through their hyponyms in increasing order of distance
+     * and stops as soon as k nouns are found, so the rest of the vocabulary is never evaluated.
+     * @return up to k nouns in increasing order of distance(noun, result)
+     */
+    public Iterable<String> nearest(String noun, int k) {
+        if (!isNoun(noun) || k < 0) {
+            throw new IllegalArgumentException();
+        }
+        List<String> nearest = new ArrayList<>(Math.min(k, 1024));
+        if (k == 0) {
+            return nearest;
+        }
+        Version current = version;
+        SynsetNouns synsetNouns = current.synsetNouns;
+        NounIndex nounIndex = current.nounIndex;
+        Set<Integer> found = new HashSet<>(); // noun ids, only results are decoded into Strings
+        found.add(nounIndex.id(noun));
+        current.sap.nearest(current.synsetSets[nounIndex.setId(noun)], (synset, distance) -> {
+            for (int i = 0; i < synsetNouns.size(synset); i++) {
+                if (found.add(synsetNouns.nounId(synset, i))) {
+                    nearest.add(nounIndex.noun(synsetNouns.nounId(synset, i)));
+                    if (nearest.size() == k) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        });
+        return nearest;
     }
 
     /**
-     * runs in time linear in the size of the WordNet digraph
-     * 0(n)
-     * @param nounA searched noun in a WordNet
-     * @param nounB searched noun in a WordNet
-     * @return a list of lists containing ids of all synsets whete a given noun occurs
+     * Same as distances(String[] nouns, boolean parallel) computed in the calling thread.
      */
-    private ArrayList<ArrayList<Integer>> getNounIds(String nounA, String nounB) {
-        List<String> value;
-        ArrayList<Integer> synsetAIds = new ArrayList<>();
-        ArrayList<Integer> synsetBIds = new ArrayList<>();
-        for(Map.Entry<Integer, List<String>> entry : synsetsMap.entrySet()) {
-            value = entry.getValue();
-            if(value.contains(nounA)) {
-                synsetAIds.add(entry.getKey());
+    public int[][] distances(String[] nouns) {
+        return distances(nouns, false);
+    }
+
+    /**
+     * Distances between all pairs of nouns.
+     * Ancestors of every noun are found by a single breadth-first search, then every pair is a merge-join of
+     * two sorted ancestor lists. Only the upper half of the symmetric matrix is computed.
+     * If parallel is true, searches and rows are spread over the common ForkJoinPool.
+     * @return matrix n-by-n where entry [i][j] = distance(nouns[i], nouns[j])
+     */
+    public int[][] distances(String[] nouns, boolean parallel) {
+        if (nouns == null) {
+            throw new IllegalArgumentException();
+        }
+        for (String noun : nouns) {
+            if (!isNoun(noun)) {
+                throw new IllegalArgumentException();
+            }
+        }
+        Version current = version;
+        int n = nouns.length;
+        long[][] ancestors = new long[n][];
+        int[][] distances = new int[n][n];
+        IntStream indexes = parallel ? IntStream.range(0, n).parallel() : IntStream.range(0, n);
+        indexes.forEach(i -> ancestors[i] = current.sap.ancestors(current.synsetSets[current.nounIndex.setId(nouns[i])]));
+        indexes = parallel ? IntStream.range(0, n).parallel() : IntStream.range(0, n);
+        indexes.forEach(i -> {
+            for (int j = i + 1; j < n; j++) {
+                distances[i][j] = AncestralSearch.length(ancestors[i], ancestors[j]);
             }
-            if(value.contains(nounB)) {
-                synsetBIds.add(entry.getKey());
+        });
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < i; j++) {
+                distances[i][j] = distances[j][i];
             }
         }
-        return new ArrayList<ArrayList<Integer>>(){{add(synsetAIds); add(synsetBIds);}};
+        return distances;
+    }
+
+    /**
+     * Same as distances(String[] nounsA, String[] nounsB, ForkJoinPool pool) in the common ForkJoinPool.
+     */
+    public int[] distances(String[] nounsA, String[] nounsB) {
+        return distances(nounsA, nounsB, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Distances of a batch of pairs (nounsA[i], nounsB[i]), computed in parallel by the threads of a pool.
+     * @return array where entry i = distance(nounsA[i], nounsB[i]), in the order of the pairs
+     */
+    public int[] distances(String[] nounsA, String[] nounsB, ForkJoinPool pool) {
+        checkPairs(nounsA, nounsB, pool);
+        Version current = version; // the whole batch sees a single version
+        int[] distances = new int[nounsA.length];
+        pool.submit(() -> IntStream.range(0, distances.length).parallel()
+                .forEach(i -> distances[i] = SAPCache.length(query(current, nounsA[i], nounsB[i])))).join();
+        return distances;
+    }
+
+    /**
+     * Same as saps(String[] nounsA, String[] nounsB, ForkJoinPool pool) in the common ForkJoinPool.
+     */
+    public String[] saps(String[] nounsA, String[] nounsB) {
+        return saps(nounsA, nounsB, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Common ancestors of a batch of pairs (nounsA[i], nounsB[i]), computed in parallel by the threads of a pool.
+     * @return array where entry i = sap(nounsA[i], nounsB[i]), in the order of the pairs
+     */
+    public String[] saps(String[] nounsA, String[] nounsB, ForkJoinPool pool) {
+        checkPairs(nounsA, nounsB, pool);
+        Version current = version; // the whole batch sees a single version
+        String[] saps = new String[nounsA.length];
+        pool.submit(() -> IntStream.range(0, saps.length).parallel()
+                .forEach(i -> saps[i] = sap(current, nounsA[i], nounsB[i]))).join();
+        return saps;
+    }
+
+    /*
+     * check that a batch of pairs is valid before any work is submitted to a pool
+     */
+    private void checkPairs(String[] nounsA, String[] nounsB, ForkJoinPool pool) {
+        if (nounsA == null || nounsB == null || pool == null || nounsA.length != nounsB.length) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < nounsA.length; i++) {
+            if (!isNoun(nounsA[i]) || !isNoun(nounsB[i])) {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    /**
+     * @return precomputed ancestor labels with their memory footprint and build time; null if not enabled
+     */
+    public AncestorLabels ancestorLabels() {
+        return version.sap.ancestorLabels();
+    }
+
+    /**
+     * Reports metrics of every following distance(), sap() and sapId() query, including those of batches,
+     * to a listener, e.g. QueryMetrics. null turns metrics off.
+     */
+    public void setListener(QueryListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the cache of distance() and sap() results; null if caching is disabled
+     */
+    public SAPCache cache() {
+        return version.cache;
+    }
+
+    /**
+     * Helper method for sap() and distance().
+     * Looks the nouns up in the nounIndex of a version and searches for a shortest ancestral path between their synsets,
+     * unless the pair of synset sets is cached.
+     * @return length and ancestor packed by SAPCache.value()
+     */
+    private long query(Version current, String nounA, String nounB) {
+        QueryListener listener = this.listener;
+        long start = listener == null ? 0 : System.nanoTime();
+        int setA = current.nounIndex.setId(nounA);
+        int setB = current.nounIndex.setId(nounB);
+        int[][] synsetSets = current.synsetSets;
+        SAP sap = current.sap;
+        SAPCache cache = current.cache;
+        if (cache == null && listener == null) {
+            return sap.query(synsetSets[setA], synsetSets[setB]);
+        }
+        long cacheStart = listener == null ? 0 : System.nanoTime();
+        long key = SAPCache.key(setA, setB);
+        long result = cache == null ? SAPCache.MISS : cache.get(key);
+        boolean cacheHit = result != SAPCache.MISS;
+        long searchStart = listener == null ? 0 : System.nanoTime();
+        if (!cacheHit) {
+            result = sap.query(synsetSets[setA], synsetSets[setB]);
+            if (cache != null) {
+                cache.put(key, result);
+            }
+        }
+        if (listener != null) {
+            sap.report(listener, cacheStart - start, searchStart - cacheStart, System.nanoTime() - searchStart,
+                    cache != null, cacheHit);
+        }
+        return result;
     }
 
     public static void main(String[] args) {
         WordNet wordNet = new WordNet("synsets.txt", "hypernyms.txt");
 
-        System.out.println("wordNet.nounsSet.size(): " + wordNet.nounsSet.size() + "; Expected: 119188");
+        System.out.println("wordNet.nounIndex.size(): " + wordNet.version.nounIndex.size() + "; Expected: 119188");
 
         System.out.println("isNoun(\"Vasya\"): " + wordNet.isNoun("Vasya") + "; Expected: false");
         System.out.println("isNoun(\"gold\"): " + wordNet.isNoun("gold") + "; Expected: true");
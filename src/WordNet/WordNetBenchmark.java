@@ -0,0 +1,226 @@
+package WordNet;
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Benchmark suite of WordNet construction, SAP queries and Outcast.
+ *
+ * Every benchmark is warmed up first, so the JIT compiles it, then measured over several iterations.
+ * It reports the mean time per operation, its spread over iterations, and the heap bytes allocated per operation
+ * (see AllocationMeter), so regressions in time or allocation rate show up side by side.
+ * Results of every operation are summed into a checksum, so the JIT can't drop the measured work.
+ */
+
+public class WordNetBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+    private static final int PAIRS = 1 << 12;
+    private static final int MAX_SOURCES = 5; // sizes of the vertex sets of multi-source queries
+    private static final int LARGE_SET = 200;  // size of the vertex sets of large multi-source queries
+    private static final int[] GENERATED_OUTCAST_SIZES = {100, 1000};
+
+    private static long checksum;
+
+    /**
+     * Benchmarked code: one run performs a fixed number of operations.
+     */
+    private interface Operation {
+        long run(); // returns a checksum of the results
+    }
+
+    /**
+     * Warms an operation up, then measures it and prints one line of results.
+     * @param opsPerRun number of operations performed by one run
+     */
+    private static void measure(String name, int opsPerRun, int warmupIterations, int measuredIterations,
+                                Operation operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            checksum += operation.run();
+        }
+        double[] nanosPerOp = new double[measuredIterations];
+        long allocated = 0;
+        for (int i = 0; i < measuredIterations; i++) {
+            long bytesBefore = AllocationMeter.allocatedBytes();
+            long start = System.nanoTime();
+            checksum += operation.run();
+            nanosPerOp[i] = (double) (System.nanoTime() - start) / opsPerRun;
+            allocated += AllocationMeter.allocatedBytes() - bytesBefore;
+        }
+        double mean = Arrays.stream(nanosPerOp).average().orElse(0);
+        double variance = Arrays.stream(nanosPerOp).map(t -> (t - mean) * (t - mean)).sum()
+                / Math.max(1, measuredIterations - 1);
+        StdOut.printf("%-36s %14.1f ns/op  ± %5.1f%%  %12.1f B/op\n", name, mean,
+                100 * Math.sqrt(variance) / mean, (double) allocated / ((long) opsPerRun * measuredIterations));
+    }
+
+    private static void measure(String name, int opsPerRun, Operation operation) {
+        measure(name, opsPerRun, WARMUP_ITERATIONS, MEASURED_ITERATIONS, operation);
+    }
+
+    /**
+     * @return PAIRS pairs of random vertices, a[i] and b[i]
+     */
+    private static int[][] randomPairs(int V) {
+        int[][] pairs = new int[2][PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            pairs[0][i] = StdRandom.uniform(V);
+            pairs[1][i] = StdRandom.uniform(V);
+        }
+        return pairs;
+    }
+
+    /**
+     * @return pairs of a random vertex and one of its ancestors 1 or 2 edges up
+     */
+    private static int[][] nearPairs(CompactDigraph graph) {
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[][] pairs = new int[2][PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            int v = StdRandom.uniform(graph.V());
+            int w = v;
+            for (int step = 1 + StdRandom.uniform(2); step > 0 && offsets[w] < offsets[w + 1]; step--) {
+                w = targets[offsets[w] + StdRandom.uniform(offsets[w + 1] - offsets[w])];
+            }
+            pairs[0][i] = v;
+            pairs[1][i] = w;
+        }
+        return pairs;
+    }
+
+    /**
+     * @return the most distant eighth of 8 * PAIRS random pairs
+     */
+    private static int[][] farPairs(SAP sap, int V) {
+        long[] candidates = new long[8 * PAIRS]; // length << 40 | index, sorted by length
+        int[][] random = new int[2][candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            random[0][i] = StdRandom.uniform(V);
+            random[1][i] = StdRandom.uniform(V);
+            candidates[i] = ((long) sap.length(random[0][i], random[1][i]) << 40) | i;
+        }
+        Arrays.sort(candidates);
+        int[][] pairs = new int[2][PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            int index = (int) (candidates[candidates.length - 1 - i] & ((1L << 40) - 1));
+            pairs[0][i] = random[0][index];
+            pairs[1][i] = random[1][index];
+        }
+        return pairs;
+    }
+
+    private static List<List<Integer>> randomSets(int V) {
+        List<List<Integer>> sets = new ArrayList<>(PAIRS);
+        for (int i = 0; i < PAIRS; i++) {
+            List<Integer> set = new ArrayList<>();
+            for (int size = 1 + StdRandom.uniform(MAX_SOURCES); size > 0; size--) {
+                set.add(StdRandom.uniform(V));
+            }
+            sets.add(set);
+        }
+        return sets;
+    }
+
+    private static void measureSAP(String name, SAP sap, int[][] pairs) {
+        measure("SAP.length() " + name, PAIRS, () -> {
+            long sum = 0;
+            for (int i = 0; i < PAIRS; i++) {
+                sum += sap.length(pairs[0][i], pairs[1][i]);
+            }
+            return sum;
+        });
+        measure("SAP.ancestor() " + name, PAIRS, () -> {
+            long sum = 0;
+            for (int i = 0; i < PAIRS; i++) {
+                sum += sap.ancestor(pairs[0][i], pairs[1][i]);
+            }
+            return sum;
+        });
+    }
+
+    private static void measureOutcast(String name, Outcast outcast, String[] nouns) {
+        measure("Outcast " + name, 1, () -> outcast.outcast(nouns).length());
+    }
+
+    public static void main(String[] args) {
+        // args: synsets.txt hypernyms.txt [outcast5.txt outcast8.txt outcast11.txt ...]
+        String synsets = args[0];
+        String hypernyms = args[1];
+        StdRandom.setSeed(2017);
+
+        measure("WordNet construction", 1, 2, 5, () -> new WordNet(synsets, hypernyms).sapEngine().graph().E());
+
+        WordNet wordNet = new WordNet(synsets, hypernyms);
+        CompactDigraph graph = wordNet.sapEngine().graph();
+        SAP sap = new SAP(graph, 0, false);
+        int V = graph.V();
+        measureSAP("random pairs", sap, randomPairs(V));
+        measureSAP("near pairs", sap, nearPairs(graph));
+        measureSAP("far pairs", sap, farPairs(sap, V));
+
+        List<List<Integer>> setsA = randomSets(V);
+        List<List<Integer>> setsB = randomSets(V);
+        measure("SAP.length(Iterable, Iterable)", PAIRS, () -> {
+            long sum = 0;
+            for (int i = 0; i < PAIRS; i++) {
+                sum += sap.length(setsA.get(i), setsB.get(i));
+            }
+            return sum;
+        });
+        measure("SAP.ancestor(Iterable, Iterable)", PAIRS, () -> {
+            long sum = 0;
+            for (int i = 0; i < PAIRS; i++) {
+                sum += sap.ancestor(setsA.get(i), setsB.get(i));
+            }
+            return sum;
+        });
+
+        int[][] largeA = new int[PAIRS / 16][];
+        int[][] largeB = new int[PAIRS / 16][];
+        for (int i = 0; i < largeA.length; i++) {
+            int[][] pairs = randomPairs(V);
+            largeA[i] = Arrays.copyOf(pairs[0], LARGE_SET);
+            largeB[i] = Arrays.copyOf(pairs[1], LARGE_SET);
+        }
+        measure("SAP.length(int[" + LARGE_SET + "], int[" + LARGE_SET + "])", largeA.length, () -> {
+            long sum = 0;
+            for (int i = 0; i < largeA.length; i++) {
+                sum += sap.length(largeA[i], largeB[i]);
+            }
+            return sum;
+        });
+        measure("SAP.path(int[" + LARGE_SET + "], int[" + LARGE_SET + "])", largeA.length, () -> {
+            long sum = 0;
+            for (int i = 0; i < largeA.length; i++) {
+                sum += sap.path(largeA[i], largeB[i]).ancestors().length;
+            }
+            return sum;
+        });
+
+        Outcast outcast = new Outcast(wordNet);
+        for (int t = 2; t < args.length; t++) {
+            measureOutcast(args[t], outcast, new In(args[t]).readAllStrings());
+        }
+        List<String> nouns = new ArrayList<>();
+        for (String noun : wordNet.nouns()) {
+            nouns.add(noun);
+        }
+        for (int size : GENERATED_OUTCAST_SIZES) {
+            String[] generated = new String[size];
+            for (int i = 0; i < size; i++) {
+                generated[i] = nouns.get(StdRandom.uniform(nouns.size()));
+            }
+            measureOutcast(size + " random nouns", outcast, generated);
+        }
+        StdOut.println("checksum " + checksum);
+    }
+}
@@ -0,0 +1,134 @@
+package WordNet;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Load generator for WordNetServer.
+ *
+ * Opens a number of connections. Each one keeps up to depth requests in flight: it writes requests until
+ * depth of them are unanswered, then reads responses until half of them are answered, and so on.
+ * Requests are a mix of DISTANCE, SAP, ISNOUN and OUTCAST on random nouns. The latency of a request is the time
+ * from writing it to reading its response, so it includes the time spent queued behind earlier requests.
+ * Prints the throughput and the latency percentiles.
+ */
+
+public class WordNetLoadClient {
+
+    private static final int OUTCAST_NOUNS = 8;
+
+    public static void main(String[] args) throws InterruptedException {
+        // args: port synsets.txt [connections] [depth] [seconds]
+        int port = Integer.parseInt(args[0]);
+        List<String> nouns = new ArrayList<>();
+        for (String[] synset : WordNetParser.parseSynsets(args[1])) {
+            if (synset != null) {
+                for (String noun : synset) {
+                    nouns.add(noun);
+                }
+            }
+        }
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        double seconds = args.length > 4 ? Double.parseDouble(args[4]) : 5.0;
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        Thread[] clients = new Thread[connections];
+        for (int c = 0; c < connections; c++) {
+            clients[c] = new Thread(() -> run(port, nouns, depth, deadline, latencies, errors));
+            clients[c].start();
+        }
+        long start = System.nanoTime();
+        for (Thread client : clients) {
+            client.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        StdOut.printf("%d connections, depth %d: %.0f requests/s, %d errors\n", connections, depth,
+                latencies.count() / elapsed, errors.sum());
+        StdOut.printf("latency us: p50 = %.1f, p90 = %.1f, p99 = %.1f, p99.9 = %.1f, max = %.1f\n",
+                latencies.percentile(50) / 1e3, latencies.percentile(90) / 1e3, latencies.percentile(99) / 1e3,
+                latencies.percentile(99.9) / 1e3, latencies.max() / 1e3);
+    }
+
+    /*
+     * one connection: pipelines requests until the deadline, then waits for all responses
+     */
+    private static void run(int port, List<String> nouns, int depth, long deadline, LatencyHistogram latencies,
+                            LongAdder errors) {
+        long[] sentAt = new long[depth]; // ring buffer of the send times of requests in flight
+        int oldest = 0;
+        int inFlight = 0;
+        try (Socket socket = new Socket("localhost", port);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            while (System.nanoTime() < deadline || inFlight > 0) {
+                if (System.nanoTime() < deadline) {
+                    while (inFlight < depth) {
+                        out.write(request(nouns));
+                        out.write('\n');
+                        sentAt[(oldest + inFlight) % depth] = System.nanoTime();
+                        inFlight++;
+                    }
+                    out.flush();
+                }
+                int target = System.nanoTime() < deadline ? depth / 2 : 0;
+                while (inFlight > target) {
+                    String response = in.readLine();
+                    if (response == null) {
+                        throw new IOException("connection closed by the server");
+                    }
+                    latencies.record(System.nanoTime() - sentAt[oldest]);
+                    if (response.startsWith("ERROR")) {
+                        errors.increment();
+                    }
+                    oldest = (oldest + 1) % depth;
+                    inFlight--;
+                }
+            }
+            out.write("QUIT\n");
+            out.flush();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private static String request(List<String> nouns) {
+        int kind = ThreadLocalRandom.current().nextInt(20);
+        if (kind < 12) {
+            return "DISTANCE " + randomNoun(nouns) + " " + randomNoun(nouns);
+        } else if (kind < 17) {
+            return "SAP " + randomNoun(nouns) + " " + randomNoun(nouns);
+        } else if (kind < 19) {
+            return "ISNOUN " + randomNoun(nouns);
+        }
+        StringBuilder request = new StringBuilder("OUTCAST");
+        for (int i = 0; i < OUTCAST_NOUNS; i++) {
+            request.append(' ').append(randomNoun(nouns));
+        }
+        return request.toString();
+    }
+
+    private static String randomNoun(List<String> nouns) {
+        return nouns.get(ThreadLocalRandom.current().nextInt(nouns.size()));
+    }
+}
@@ -0,0 +1,212 @@
+package WordNet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Single-pass, byte-level parser of synsets.txt and hypernyms.txt.
+ *
+ * Files are streamed through a fixed size buffer: no lines, no String.split() and no boxed integers are created.
+ * Ids are parsed straight from the bytes, only nouns are decoded into Strings.
+ * synsets.txt: id,noun1 noun2 ... nounK,gloss
+ * hypernyms.txt: id,hypernymId1,hypernymId2,...
+ * Throws a java.lang.IllegalArgumentException if a file can't be read or is malformed.
+ */
+
+class WordNetParser {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private byte[] token = new byte[64]; // bytes of the noun being parsed; may span two buffer refills
+    private int tokenLength;
+
+    private WordNetParser(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @return nouns of each synset indexed by synset id
+     */
+    static String[][] parseSynsets(String synsets) {
+        try (InputStream in = Files.newInputStream(Paths.get(synsets))) {
+            return new WordNetParser(in).synsets();
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("can't read " + synsets, ioe);
+        }
+    }
+
+    /**
+     * @param V number of synsets
+     * @return digraph with an edge from every synset to each of its hypernyms
+     */
+    static CompactDigraph parseHypernyms(String hypernyms, int V) {
+        try (InputStream in = Files.newInputStream(Paths.get(hypernyms))) {
+            return new WordNetParser(in).hypernyms(V);
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("can't read " + hypernyms, ioe);
+        }
+    }
+
+    private String[][] synsets() throws IOException {
+        String[][] synsetNouns = new String[1 << 12][];
+        int V = 0;
+        String[] nouns = new String[8];
+        while (skipBlankLines() != -1) {
+            int id = readInt();
+            expect(',');
+            int nounsCount = 0;
+            int b;
+            do {
+                b = readToken();
+                if (tokenLength == 0) {
+                    throw new IllegalArgumentException("empty noun in synset " + id);
+                }
+                if (nounsCount == nouns.length) {
+                    nouns = Arrays.copyOf(nouns, 2 * nounsCount);
+                }
+                nouns[nounsCount++] = new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+            } while (b == ' ');
+            if (b != ',') {
+                throw new IllegalArgumentException("missing gloss in synset " + id);
+            }
+            skipLine(); // gloss is not used
+
+            if (id >= synsetNouns.length) {
+                synsetNouns = Arrays.copyOf(synsetNouns, Math.max(id + 1, 2 * synsetNouns.length));
+            }
+            synsetNouns[id] = Arrays.copyOf(nouns, nounsCount);
+            V = Math.max(V, id + 1);
+        }
+        return Arrays.copyOf(synsetNouns, V);
+    }
+
+    private CompactDigraph hypernyms(int V) throws IOException {
+        int[] tails = new int[Math.max(16, V)];
+        int[] heads = new int[Math.max(16, V)];
+        int E = 0;
+        while (skipBlankLines() != -1) {
+            int id = readInt();
+            checkVertex(id, V);
+            int b = read();
+            while (b == ',') {
+                int hypernymId = readInt();
+                checkVertex(hypernymId, V);
+                if (E == tails.length) {
+                    tails = Arrays.copyOf(tails, 2 * E);
+                    heads = Arrays.copyOf(heads, 2 * E);
+                }
+                tails[E] = id;
+                heads[E] = hypernymId;
+                E++;
+                b = read();
+            }
+            if (b == '\r') {
+                b = read();
+            }
+            if (b != '\n' && b != -1) {
+                throw new IllegalArgumentException("unexpected character in hypernyms of " + id);
+            }
+        }
+        return new CompactDigraph(V, tails, heads, E);
+    }
+
+    private static void checkVertex(int id, int V) {
+        if (id >= V) {
+            throw new IllegalArgumentException("unknown synset " + id);
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position] & 0xff;
+    }
+
+    private int read() throws IOException {
+        int b = peek();
+        if (b != -1) {
+            position++;
+        }
+        return b;
+    }
+
+    private void expect(char c) throws IOException {
+        if (read() != c) {
+            throw new IllegalArgumentException("expected '" + c + "'");
+        }
+    }
+
+    /*
+     * reads a non-negative decimal number
+     */
+    private int readInt() throws IOException {
+        int b = read();
+        if (b < '0' || b > '9') {
+            throw new IllegalArgumentException("expected a synset id");
+        }
+        int value = 0;
+        while (b >= '0' && b <= '9') {
+            value = 10 * value + (b - '0');
+            if (value < 0) {
+                throw new IllegalArgumentException("synset id is too large");
+            }
+            b = peek();
+            if (b >= '0' && b <= '9') {
+                position++;
+            }
+        }
+        return value;
+    }
+
+    /*
+     * reads bytes into token up to a space or a comma.
+     * @return the delimiter that ended the token
+     */
+    private int readToken() throws IOException {
+        tokenLength = 0;
+        int b = read();
+        while (b != ' ' && b != ',' && b != '\n' && b != -1) {
+            if (tokenLength == token.length) {
+                token = Arrays.copyOf(token, 2 * tokenLength);
+            }
+            token[tokenLength++] = (byte) b;
+            b = read();
+        }
+        return b;
+    }
+
+    /*
+     * @return the first byte of the next non-empty line, or -1 at the end of the file
+     */
+    private int skipBlankLines() throws IOException {
+        int b = peek();
+        while (b == '\n' || b == '\r') {
+            position++;
+            b = peek();
+        }
+        return b;
+    }
+
+    private void skipLine() throws IOException {
+        int b = read();
+        while (b != '\n' && b != -1) {
+            b = read();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package WordNet;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Local TCP server of WordNet queries with a pipelined line protocol.
+ *
+ * The WordNet is loaded once, from synsets.txt and hypernyms.txt or from a WordNetSnapshot, and shared by all
+ * connections. Every request is one UTF-8 line, every response is one line, in the order of the requests:
+ * ISNOUN noun              -> true | false
+ * DISTANCE nounA nounB     -> distance
+ * SAP nounA nounB          -> synset of the common ancestor
+ * OUTCAST noun1 noun2 ...  -> outcast
+ * QUIT                     -> closes the connection
+ * A malformed request or an unknown noun gets ERROR and a message, and the connection goes on.
+ *
+ * A client may send any number of requests without waiting for responses. Every request already received
+ * on a connection, up to MAX_BATCH, is executed as one batch: all its DISTANCE and all its SAP requests go to
+ * the batch API of WordNet on a ForkJoinPool, and all responses are written with a single flush.
+ * Each connection is served by its own thread with blocking I/O: a local service has few long-lived
+ * connections that pipeline many requests, so a thread per connection costs little and keeps the code simple.
+ */
+
+public class WordNetServer implements Closeable {
+
+    private static final int MAX_BATCH = 1024; // requests executed and flushed together
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WordNet wordNet;
+    private final Outcast outcast;
+    private final ForkJoinPool pool;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts serving a WordNet on a port of the loopback address; port 0 picks a free port, see port().
+     * Batches run in the common ForkJoinPool.
+     * Throws a java.lang.IllegalArgumentException if the port can't be opened.
+     */
+    public WordNetServer(WordNet wordNet, int port) {
+        this(wordNet, port, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as WordNetServer(WordNet wordNet, int port), but batches run in the given pool.
+     */
+    public WordNetServer(WordNet wordNet, int port, ForkJoinPool pool) {
+        if (wordNet == null || pool == null || port < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.wordNet = wordNet;
+        this.outcast = new Outcast(wordNet);
+        this.pool = pool;
+        try {
+            this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("can't listen on port " + port, ioe);
+        }
+        connections.execute(this::accept);
+    }
+
+    // port the server listens on
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes all open ones.
+     */
+    @Override
+    public void close() {
+        closeQuietly(serverSocket);
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+        connections.shutdownNow();
+    }
+
+    /*
+     * a socket that fails to close doesn't keep the others open
+     */
+    private static void closeQuietly(Closeable socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (IOException ioe) {
+                // the server socket is closed
+            }
+        }
+    }
+
+    /*
+     * reads requests of one connection until QUIT or the end of the stream
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            List<String[]> batch = new ArrayList<>();
+            boolean quit = false;
+            while (!quit) {
+                String line = in.readLine(); // blocks for the first request of a batch only
+                while (line != null) {
+                    String[] request = line.trim().split("\\s+");
+                    if (request[0].equalsIgnoreCase("QUIT")) {
+                        quit = true;
+                        break;
+                    }
+                    batch.add(request);
+                    if (batch.size() == MAX_BATCH || !in.ready()) {
+                        break;
+                    }
+                    line = in.readLine();
+                }
+                if (line == null) {
+                    quit = true;
+                }
+                for (String response : execute(batch)) {
+                    out.write(response);
+                    out.write('\n');
+                }
+                out.flush();
+                batch.clear();
+            }
+        } catch (IOException ioe) {
+            // connection closed by the client or by close()
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Executes a batch of requests.
+     * @return a response to each request, in the same order
+     */
+    String[] execute(List<String[]> batch) {
+        String[] responses = new String[batch.size()];
+        List<Integer> distanceIndexes = new ArrayList<>();
+        List<Integer> sapIndexes = new ArrayList<>();
+        for (int i = 0; i < responses.length; i++) {
+            String[] request = batch.get(i);
+            String command = request[0].toUpperCase(Locale.ROOT);
+            if (command.equals("DISTANCE") || command.equals("SAP")) {
+                if (request.length != 3) {
+                    responses[i] = "ERROR " + command + " takes 2 nouns";
+                } else if (!wordNet.isNoun(request[1]) || !wordNet.isNoun(request[2])) {
+                    responses[i] = "ERROR not a noun";
+                } else {
+                    (command.equals("SAP") ? sapIndexes : distanceIndexes).add(i);
+                }
+            } else if (command.equals("ISNOUN")) {
+                responses[i] = request.length != 2 ? "ERROR ISNOUN takes 1 noun"
+                        : String.valueOf(wordNet.isNoun(request[1]));
+            } else if (command.equals("OUTCAST")) {
+                responses[i] = outcast(request);
+            } else {
+                responses[i] = "ERROR unknown command " + request[0];
+            }
+        }
+        if (!distanceIndexes.isEmpty()) {
+            int[] distances = wordNet.distances(nouns(batch, distanceIndexes, 1), nouns(batch, distanceIndexes, 2),
+                    pool);
+            for (int k = 0; k < distances.length; k++) {
+                responses[distanceIndexes.get(k)] = String.valueOf(distances[k]);
+            }
+        }
+        if (!sapIndexes.isEmpty()) {
+            String[] saps = wordNet.saps(nouns(batch, sapIndexes, 1), nouns(batch, sapIndexes, 2), pool);
+            for (int k = 0; k < saps.length; k++) {
+                responses[sapIndexes.get(k)] = saps[k];
+            }
+        }
+        return responses;
+    }
+
+    /*
+     * a noun argument of the selected requests
+     */
+    private static String[] nouns(List<String[]> batch, List<Integer> indexes, int argument) {
+        String[] nouns = new String[indexes.size()];
+        for (int k = 0; k < nouns.length; k++) {
+            nouns[k] = batch.get(indexes.get(k))[argument];
+        }
+        return nouns;
+    }
+
+    private String outcast(String[] request) {
+        if (request.length < 2) {
+            return "ERROR OUTCAST takes nouns";
+        }
+        String[] nouns = new String[request.length - 1];
+        for (int i = 0; i < nouns.length; i++) {
+            nouns[i] = request[i + 1];
+            if (!wordNet.isNoun(nouns[i])) {
+                return "ERROR not a noun";
+            }
+        }
+        return outcast.outcast(nouns);
+    }
+
+    public static void main(String[] args) {
+        // args: port synsets.txt hypernyms.txt, or port wordnet.snapshot
+        int port = Integer.parseInt(args[0]);
+        WordNet wordNet = args.length > 2 ? new WordNet(args[1], args[2], 1 << 16)
+                : WordNetSnapshot.load(args[1], 1 << 16);
+        WordNetServer server = new WordNetServer(wordNet, port);
+        StdOut.println("serving WordNet on localhost:" + server.port());
+    }
+}
@@ -0,0 +1,321 @@
+package WordNet;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Versioned binary snapshot of a validated WordNet.
+ *
+ * A snapshot is written once from a WordNet built from synsets.txt and hypernyms.txt and can be loaded at every
+ * process start instead: nothing is parsed and the rooted DAG checks are not repeated.
+ * Loading memory-maps the file and copies the sections in bulk (no per-element reads), and creates no Strings:
+ * the noun pool becomes the NounIndex as it is. So it takes milliseconds rather than seconds.
+ * The file is unmapped as soon as it is copied. Every count is checked against the bytes left before anything
+ * is allocated, every offset and id is checked against its range, and every label must be sorted and hold its
+ * vertex at distance 0, so a truncated file or one with a broken structure is rejected when it is loaded instead
+ * of failing at query time. Values that are well-formed but wrong, such as a wrong distance, are not detected.
+ *
+ * Layout, all ints big-endian:
+ * MAGIC, VERSION,
+ * V, E, graph offsets[V + 1], graph targets[E],
+ * nounsCount, poolLength, noun offsets[nounsCount + 1], UTF-8 noun bytes[poolLength] padded to 4 bytes,
+ * synset noun offsets[V + 1], synset noun ids[...],
+ * setsCount, set offsets[setsCount + 1], set synset ids[...], noun set ids[nounsCount],
+ * hasLabels, and if it is 1: size, label offsets[V + 1], label ancestors[size], label distances[size].
+ */
+
+public class WordNetSnapshot {
+
+    private static final int MAGIC = 0x574E5350; // "WNSP"
+    private static final int VERSION = 1;
+
+    /**
+     * Writes a snapshot of a WordNet, including its AncestorLabels if they are enabled.
+     * Throws a java.lang.IllegalArgumentException if the file can't be written.
+     */
+    public static void save(WordNet wordNet, String file) {
+        if (wordNet == null || file == null) {
+            throw new IllegalArgumentException();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(Paths.get(file)), 1 << 16))) {
+            synchronized (wordNet) { // no update between the parts of a snapshot
+                write(wordNet, out);
+            }
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("can't write " + file, ioe);
+        }
+    }
+
+    /**
+     * Loads a snapshot written by save().
+     * Throws a java.lang.IllegalArgumentException if the file can't be read, is corrupt or truncated,
+     * or has another format version.
+     */
+    public static WordNet load(String file) {
+        return load(file, 0);
+    }
+
+    /**
+     * Same as load(String file), but the WordNet caches up to cacheCapacity query results, see WordNet.
+     */
+    public static WordNet load(String file, int cacheCapacity) {
+        if (file == null) {
+            throw new IllegalArgumentException();
+        }
+        Path path = Paths.get(file);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("can't read " + file, ioe);
+        }
+        try {
+            return read(buffer, cacheCapacity);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("corrupt snapshot " + file, e);
+        } finally {
+            unmap(buffer);
+        }
+    }
+
+    /*
+     * Unmaps a buffer right away instead of whenever it is garbage collected, where the JDK allows it:
+     * Unsafe.invokeCleaner() since Java 9, the cleaner of a direct buffer in Java 8. Otherwise it is left to GC.
+     * The buffer and its views must not be used after.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException java8) {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not allowed by this JDK: unmapped when the buffer is garbage collected
+        }
+    }
+
+    private static void write(WordNet wordNet, DataOutputStream out) throws IOException {
+        SynsetNouns synsetNouns = wordNet.synsetNouns();
+        NounIndex nounIndex = wordNet.nounIndex().compacted();
+        int[][] synsetSets = wordNet.synsetSets();
+        SAP sap = wordNet.sapEngine();
+        CompactDigraph graph = sap.graph();
+        int V = graph.V();
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(V);
+        out.writeInt(graph.E());
+        writeInts(out, graph.offsets());
+        writeInts(out, graph.targets());
+
+        // noun dictionary: every noun once, synsets refer to nouns by id
+        byte[] pool = nounIndex.pool();
+        out.writeInt(nounIndex.size());
+        out.writeInt(pool.length);
+        writeInts(out, nounIndex.offsets());
+        out.write(pool);
+        for (int i = pool.length; i % 4 != 0; i++) {
+            out.writeByte(0);
+        }
+
+        writeInts(out, synsetNouns.offsets());
+        writeInts(out, synsetNouns.nounIds());
+
+        out.writeInt(synsetSets.length);
+        int setOffset = 0;
+        out.writeInt(setOffset);
+        for (int[] set : synsetSets) {
+            setOffset += set.length;
+            out.writeInt(setOffset);
+        }
+        for (int[] set : synsetSets) {
+            writeInts(out, set);
+        }
+        writeInts(out, nounIndex.setIds());
+
+        AncestorLabels labels = sap.ancestorLabels();
+        out.writeInt(labels == null ? 0 : 1);
+        if (labels != null) {
+            out.writeInt(labels.ancestors().length);
+            writeInts(out, labels.offsets());
+            writeInts(out, labels.ancestors());
+            writeInts(out, labels.distances());
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static WordNet read(ByteBuffer buffer, int cacheCapacity) {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not a WordNet snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported snapshot version " + version + ", expected " + VERSION);
+        }
+        int V = readCount(buffer);
+        int E = readCount(buffer);
+        int[] graphOffsets = readOffsets(buffer, V, E);
+        CompactDigraph graph = new CompactDigraph(graphOffsets, readIds(buffer, E, V));
+
+        int nounsCount = readCount(buffer);
+        int poolLength = readCount(buffer);
+        int[] nounOffsets = readOffsets(buffer, nounsCount, poolLength);
+        checkRemaining(buffer, poolLength, 1);
+        byte[] pool = new byte[poolLength];
+        buffer.get(pool);
+        buffer.position(buffer.position() + (4 - poolLength % 4) % 4);
+
+        int[] synsetNounOffsets = readOffsets(buffer, V, -1);
+        SynsetNouns synsetNouns = new SynsetNouns(synsetNounOffsets,
+                readIds(buffer, synsetNounOffsets[V], nounsCount));
+
+        int setsCount = readCount(buffer);
+        int[] setOffsets = readOffsets(buffer, setsCount, -1);
+        int[] setSynsets = readIds(buffer, setOffsets[setsCount], V);
+        int[][] synsetSets = new int[setsCount][];
+        for (int i = 0; i < setsCount; i++) {
+            synsetSets[i] = Arrays.copyOfRange(setSynsets, setOffsets[i], setOffsets[i + 1]);
+        }
+        NounIndex nounIndex = new NounIndex(pool, nounOffsets, readIds(buffer, nounsCount, setsCount));
+
+        AncestorLabels labels = null;
+        int hasLabels = buffer.getInt();
+        if (hasLabels == 1) {
+            int size = readCount(buffer);
+            int[] labelOffsets = readOffsets(buffer, V, size);
+            int[] ancestors = readIds(buffer, size, V);
+            int[] distances = readIds(buffer, size, Integer.MAX_VALUE);
+            checkLabels(labelOffsets, ancestors, distances);
+            labels = new AncestorLabels(labelOffsets, ancestors, distances);
+        } else if (hasLabels != 0) {
+            throw new IllegalArgumentException("corrupt snapshot");
+        }
+        return new WordNet(synsetNouns, nounIndex, synsetSets, new SAP(graph, 0, labels), cacheCapacity);
+    }
+
+    /*
+     * a count of elements that follow, checked to fit in the rest of the buffer before anything is allocated for them
+     */
+    private static int readCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("corrupt snapshot");
+        }
+        return count;
+    }
+
+    private static void checkRemaining(ByteBuffer buffer, long n, int bytes) {
+        if (n < 0 || n * bytes > buffer.remaining()) {
+            throw new IllegalArgumentException("corrupt snapshot");
+        }
+    }
+
+    /*
+     * n + 1 offsets of a CSR array: starting at 0, non-decreasing and ending at end; -1 if any end is allowed
+     */
+    private static int[] readOffsets(ByteBuffer buffer, int n, int end) {
+        int[] offsets = readInts(buffer, n + 1);
+        if (offsets[0] != 0 || (end != -1 && offsets[n] != end)) {
+            throw new IllegalArgumentException("corrupt snapshot");
+        }
+        for (int i = 0; i < n; i++) {
+            if (offsets[i] > offsets[i + 1]) {
+                throw new IllegalArgumentException("corrupt snapshot");
+            }
+        }
+        return offsets;
+    }
+
+    /*
+     * n ids, each between 0 and bound - 1
+     */
+    private static int[] readIds(ByteBuffer buffer, int n, int bound) {
+        int[] ids = readInts(buffer, n);
+        for (int id : ids) {
+            if (id < 0 || id >= bound) {
+                throw new IllegalArgumentException("corrupt snapshot");
+            }
+        }
+        return ids;
+    }
+
+    /*
+     * the label of every vertex must be sorted by ancestor without duplicates, as the merge-join of
+     * AncestorLabels expects, and hold the vertex itself at distance 0
+     */
+    private static void checkLabels(int[] offsets, int[] ancestors, int[] distances) {
+        for (int v = 0; v < offsets.length - 1; v++) {
+            boolean hasSelf = false;
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                if (i > offsets[v] && ancestors[i] <= ancestors[i - 1]) {
+                    throw new IllegalArgumentException("corrupt snapshot");
+                }
+                if (ancestors[i] == v) {
+                    hasSelf = distances[i] == 0;
+                }
+            }
+            if (!hasSelf) {
+                throw new IllegalArgumentException("corrupt snapshot");
+            }
+        }
+    }
+
+    /*
+     * bulk copy of n ints from the current position of the buffer
+     */
+    private static int[] readInts(ByteBuffer buffer, int n) {
+        checkRemaining(buffer, n, 4);
+        int[] values = new int[n];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * n);
+        return values;
+    }
+
+    public static void main(String[] args) {
+        // args: synsets.txt hypernyms.txt wordnet.snapshot
+        Stopwatch parseTime = new Stopwatch();
+        WordNet wordNet = new WordNet(args[0], args[1], 0, true);
+        StdOut.println("built from text files in " + parseTime.elapsedTime() + " seconds");
+        save(wordNet, args[2]);
+
+        Stopwatch loadTime = new Stopwatch();
+        WordNet loaded = load(args[2]);
+        StdOut.println("loaded from snapshot in " + loadTime.elapsedTime() + " seconds");
+        StdOut.println("distance(\"sprint\", \"locomotion\"): " + loaded.distance("sprint", "locomotion")
+                + "; Expected: 2");
+    }
+}
@@ -0,0 +1,106 @@
+package WordNet;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Algorithms Part II by Princeton University
+ * Programming assignment 1. WordNet.
+ * Throughput benchmark of concurrent WordNet queries.
+ *
+ * Runs distance() on random noun pairs from 1, 2, 4, ... up to maxThreads threads that share one WordNet,
+ * then the parallel batch API with pools of the same sizes, and prints queries per second and the speedup
+ * over a single thread. Near-linear speedup means queries don't contend with each other.
+ */
+
+public class WordNetThroughput {
+
+    private static final int PAIRS = 1 << 16;
+
+    public static void main(String[] args) throws InterruptedException {
+        // args: synsets.txt hypernyms.txt [maxThreads] [secondsPerRun]
+        WordNet wordNet = new WordNet(args[0], args[1]);
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        double seconds = args.length > 3 ? Double.parseDouble(args[3]) : 2.0;
+
+        List<String> nouns = new ArrayList<>();
+        for (String noun : wordNet.nouns()) {
+            nouns.add(noun);
+        }
+        String[] nounsA = new String[PAIRS];
+        String[] nounsB = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            nounsA[i] = nouns.get(StdRandom.uniform(nouns.size()));
+            nounsB[i] = nouns.get(StdRandom.uniform(nouns.size()));
+        }
+
+        runThreads(wordNet, nounsA, nounsB, 1, seconds); // warm up
+        StdOut.println("threads calling distance():");
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double throughput = runThreads(wordNet, nounsA, nounsB, threads, seconds);
+            if (threads == 1) {
+                single = throughput;
+            }
+            StdOut.printf("%4d threads: %12.0f queries/s, speedup %5.2f\n", threads, throughput, throughput / single);
+        }
+
+        StdOut.println("batch distances(String[], String[], ForkJoinPool):");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            wordNet.distances(nounsA, nounsB, pool); // warm up
+            long start = System.nanoTime();
+            int batches = 0;
+            while (System.nanoTime() - start < seconds * 1e9) {
+                wordNet.distances(nounsA, nounsB, pool);
+                batches++;
+            }
+            double throughput = (double) batches * PAIRS / ((System.nanoTime() - start) / 1e9);
+            if (threads == 1) {
+                single = throughput;
+            }
+            StdOut.printf("%4d threads: %12.0f queries/s, speedup %5.2f\n", threads, throughput, throughput / single);
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * every thread queries the pairs starting from its own offset until the time is over.
+     * @return total queries per second
+     */
+    private static double runThreads(WordNet wordNet, String[] nounsA, String[] nounsB, int threads,
+                                     double seconds) throws InterruptedException {
+        AtomicLong queries = new AtomicLong();
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int offset = t * (PAIRS / threads);
+            workers[t] = new Thread(() -> {
+                long count = 0;
+                long checksum = 0;
+                int i = offset;
+                while (System.nanoTime() < deadline) {
+                    for (int k = 0; k < 256; k++) {
+                        checksum += wordNet.distance(nounsA[i], nounsB[i]);
+                        i = (i + 1) & (PAIRS - 1);
+                    }
+                    count += 256;
+                }
+                queries.addAndGet(count + (checksum == Long.MIN_VALUE ? 1 : 0)); // keep checksum alive
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return queries.get() / ((System.nanoTime() - start) / 1e9);
+    }
+}